@@ -2,21 +2,38 @@ package com.fibanez.java8;
 
 import com.fibanez.java8.clients.ArticleRepositoryClient;
 import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.hotkeys.HeavyHitters;
+import com.fibanez.java8.jfr.EnrichmentRecorder;
 import com.fibanez.java8.models.ArticleReference;
 import com.fibanez.java8.models.Image;
 import com.fibanez.java8.models.RichArticle;
 import com.fibanez.java8.models.Video;
+import com.fibanez.java8.monitoring.ExecutorMonitor;
+import com.fibanez.java8.monitoring.InstrumentedExecutor;
+import com.fibanez.java8.monitoring.SaturationThresholds;
+import com.fibanez.java8.retry.Retrier;
 import com.fibanez.java8.utils.Futures;
 import com.fibanez.java8.utils.StringUtils;
+import com.fibanez.java8.warmup.StandInClients;
+import com.fibanez.java8.warmup.WarmUpReport;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -33,24 +50,357 @@ import java.util.stream.Collectors;
  * @author fibanez
  * @see "https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/CompletableFuture.html"
  */
-public class ArticleEnricherImpl implements ArticleEnricher {
+public class ArticleEnricherImpl implements ArticleEnricher, AutoCloseable {
+
+    /**
+     * Message of the failure returned for a missing article, never retried.
+     */
+    public static final String NO_ARTICLE_FOUND = "No article found";
 
     private ArticleRepositoryClient articleRepositoryClient; //Inject or constructor
 
     private AssetsServiceClient assetsServiceClient; //Inject or constructor
 
-    private ExecutorService executor = Executors.newCachedThreadPool();
+    private InstrumentedExecutor executor = InstrumentedExecutor.newCachedThreadPool();
+
+    private ExecutorMonitor executorMonitor = new ExecutorMonitor(executor, SaturationThresholds.defaults());
+
+    private Retrier retrier = Retrier.noRetries();
+
+    private HeavyHitters articleHeavyHitters = HeavyHitters.disabled();
+
+    private HeavyHitters assetHeavyHitters = HeavyHitters.disabled();
+
+    private EnrichmentRecorder enrichmentRecorder = EnrichmentRecorder.disabled();
+
+    private boolean inlineCompletion;
 
+    private int maxConcurrentAssetCalls = 32;
+
+    private final Set<CompletableFuture<RichArticle>> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private long drainTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+    public ArticleEnricherImpl() {
+    }
+
+    public ArticleEnricherImpl(ArticleRepositoryClient articleRepositoryClient, AssetsServiceClient assetsServiceClient) {
+        this.articleRepositoryClient = articleRepositoryClient;
+        this.assetsServiceClient = assetsServiceClient;
+    }
+
+    /**
+     * Cancelling the returned future cancels the whole call graph: the pending article call, every
+     * asset call and the tasks waiting on them.
+     */
     @Override
-    public Future<RichArticle> enrichArticleWithId(String articleId) {
+    public CompletableFuture<RichArticle> enrichArticleWithId(String articleId) {
+        return enrich(articleId, 0, null);
+    }
+
+    /**
+     * Enriches an article returning it as soon as its hero image and its first videos are fetched,
+     * along with the future of the article with all its videos. Useful for articles with hundreds
+     * of videos, such as live blogs and galleries.
+     *
+     * @param articleId
+     * @param firstVideos number of videos of the first part, zero or more
+     * @return CompletableFuture<PartialRichArticle>
+     */
+    public CompletableFuture<PartialRichArticle> enrichArticleWithIdEarly(String articleId, int firstVideos) {
+        if (firstVideos < 0) {
+            throw new IllegalArgumentException("firstVideos must not be negative");
+        }
+        CompletableFuture<RichArticle> firstPartFuture = new CompletableFuture<>();
+        CompletableFuture<RichArticle> fullArticleFuture = enrich(articleId, firstVideos, firstPartFuture);
+        return Futures.propagateCancellation(
+                firstPartFuture.thenApply(firstPart -> new PartialRichArticle(firstPart, fullArticleFuture)),
+                fullArticleFuture);
+    }
 
+    private CompletableFuture<RichArticle> enrich(String articleId, int firstVideos,
+                                                  CompletableFuture<RichArticle> firstPartFuture) {
+
+        CompletableFuture<RichArticle> richArticleFuture = newTrackedFuture();
+        if (firstPartFuture != null) {
+            richArticleFuture.whenComplete((richArticle, e) -> {
+                if (e != null) {
+                    firstPartFuture.completeExceptionally(e);
+                }
+            });
+        }
+        if (richArticleFuture.isDone()) {
+            return richArticleFuture;
+        }
+
+        if (!StringUtils.isBlank(articleId)) {
+            articleHeavyHitters.record(articleId);
+        }
+        EnrichmentRecorder.Enrichment enrichment = enrichmentRecorder.beginEnrichment(articleId);
+        richArticleFuture.whenComplete(enrichment::end);
         CompletableFuture<ArticleReference> articleReferenceFuture = getArticleReferenceFuture(articleId);
+        Futures.propagateCancellation(richArticleFuture, articleReferenceFuture);
+
+        Futures.completeWith(articleReferenceFuture
+                .thenCompose(articleReference -> {
+                    enrichment.articleFetched(articleReference.getVideoUrls() == null
+                            ? 0 : articleReference.getVideoUrls().size());
+                    CompletableFuture<Image> imageFuture = getImageFutureFromUrl(articleReference.getHeroImageUrl());
+                    List<CompletableFuture<Video>> videoFutures = startVideoFutures(articleReference.getVideoUrls());
+                    CompletableFuture<List<Video>> videosFuture = Futures.joinFutures(videoFutures.stream());
+                    Futures.propagateCancellation(richArticleFuture, imageFuture, videosFuture);
+                    if (firstPartFuture != null) {
+                        List<CompletableFuture<Video>> firstVideoFutures =
+                                videoFutures.subList(0, Math.min(firstVideos, videoFutures.size()));
+                        Futures.completeWith(imageFuture.thenCombine(Futures.joinFutures(firstVideoFutures.stream())
+                                ,(image,videos) -> combine(articleReference, image, videos)), firstPartFuture);
+                    }
+                    return imageFuture.thenCombine(videosFuture
+                            ,(image,videos) -> combine(articleReference, image, videos));
+                }), richArticleFuture);
+        return richArticleFuture;
+    }
+
+    /**
+     * Re-enriches an article which has been edited, fetching only the assets which are not in the
+     * previous rich article. The hero image and the videos whose ids have not changed are reused.
+     * It is counted and recorded as an enrichment of the article, as enrichArticleWithId is.
+     *
+     * @param previous the rich article enriched before the edition, with the same id, if null
+     *                 everything is fetched
+     * @param articleReference the article after the edition
+     * @return CompletableFuture<RichArticle> with the new name, hero image and videos, failed if there
+     * is no article reference or the previous rich article is another article
+     */
+    public CompletableFuture<RichArticle> reEnrichArticle(RichArticle previous, ArticleReference articleReference) {
+        if (articleReference == null || StringUtils.isBlank(articleReference.getId())) {
+            return Futures.generateFutureException(NO_ARTICLE_FOUND);
+        }
+        if (previous != null && !articleReference.getId().equals(previous.getId())) {
+            return Futures.generateFutureException("The previous rich article is not article " + articleReference.getId());
+        }
+        CompletableFuture<RichArticle> richArticleFuture = newTrackedFuture();
+        if (richArticleFuture.isDone()) {
+            return richArticleFuture;
+        }
+
+        articleHeavyHitters.record(articleReference.getId());
+        EnrichmentRecorder.Enrichment enrichment = enrichmentRecorder.beginEnrichment(articleReference.getId());
+        richArticleFuture.whenComplete(enrichment::end);
+        enrichment.articleFetched(articleReference.getVideoUrls() == null ? 0 : articleReference.getVideoUrls().size());
+
+        String imageId = StringUtils.getLastPathPart(articleReference.getHeroImageUrl());
+        Image previousImage = previous != null ? previous.getHeroImage() : null;
+        CompletableFuture<Image> imageFuture = previousImage != null && imageId.equals(previousImage.getId())
+                ? CompletableFuture.completedFuture(previousImage)
+                : getImageFutureFromClient(imageId);
+
+        Map<String, Video> previousVideos = new HashMap<>();
+        if (previous != null && previous.getVideos() != null) {
+            for (Video video : previous.getVideos()) {
+                if (video != null) {
+                    previousVideos.putIfAbsent(video.getId(), video);
+                }
+            }
+        }
+        List<String> videoIds = getVideoIds(articleReference.getVideoUrls());
+        List<String> changedVideoIds = videoIds.stream()
+                .filter(id -> !previousVideos.containsKey(id))
+                .collect(Collectors.toList());
+        Iterator<CompletableFuture<Video>> changedVideoFutures = startVideoFuturesForIds(changedVideoIds).iterator();
+        List<CompletableFuture<Video>> videoFutures = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            Video previousVideo = previousVideos.get(videoId);
+            videoFutures.add(previousVideo != null
+                    ? CompletableFuture.completedFuture(previousVideo)
+                    : changedVideoFutures.next());
+        }
+        CompletableFuture<List<Video>> videosFuture = Futures.joinFutures(videoFutures.stream());
+
+        Futures.propagateCancellation(richArticleFuture, imageFuture, videosFuture);
+        Futures.completeWith(imageFuture.thenCombine(videosFuture
+                ,(image,videos) -> combine(articleReference, image, videos)), richArticleFuture);
+        return richArticleFuture;
+    }
+
+    /**
+     * Returns a future tracked as in flight until it completes, or failed if the enricher is closed.
+     */
+    private CompletableFuture<RichArticle> newTrackedFuture() {
+        CompletableFuture<RichArticle> richArticleFuture = new CompletableFuture<>();
+        inFlight.add(richArticleFuture);
+        if (closed.get()) {
+            inFlight.remove(richArticleFuture);
+            richArticleFuture.completeExceptionally(new RuntimeException("The article enricher is closed"));
+            return richArticleFuture;
+        }
+        richArticleFuture.whenComplete((richArticle, e) -> inFlight.remove(richArticleFuture));
+        return richArticleFuture;
+    }
+
+    /**
+     * Stops accepting enrichments, waits up to the drain timeout for the ones in flight, cancels the
+     * ones still pending and shuts the executor down. The scheduler of the retrier is not owned by
+     * the enricher and is left running.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0]))
+                    .get(drainTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // failed enrichments are drained too, the pending ones are cancelled below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CompletableFuture<RichArticle> richArticleFuture : inFlight) {
+            richArticleFuture.cancel(true);
+        }
+        executor.shutdownNow();
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * @return number of enrichments which have not completed yet
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Sets how long close() waits for the enrichments in flight. 30 seconds by default.
+     *
+     * @param drainTimeout
+     * @param unit
+     */
+    public void setDrainTimeout(long drainTimeout, TimeUnit unit) {
+        this.drainTimeoutNanos = unit.toNanos(drainTimeout);
+    }
+
+    /**
+     * Runs synthetic enrichments against StandInClients, in the same completion mode as this
+     * enricher, so that the enrichment code paths are compiled by the JIT before the real traffic
+     * arrives. The enrichments run in a separate enricher: the clients, executor, retry budget and
+     * trackers of this one are not touched.
+     *
+     * @param enrichments number of synthetic enrichments, at least 1, split in up to 20 batches which
+     *                    differ by one at most
+     * @return WarmUpReport with the latency of each batch
+     */
+    public WarmUpReport warmUp(int enrichments) {
+        if (enrichments < 1) {
+            throw new IllegalArgumentException("enrichments must be at least 1");
+        }
+        StandInClients standInClients = new StandInClients(5);
+        int batches = Math.min(20, enrichments);
+        List<Long> batchAverageNanos = new ArrayList<>(batches);
+        int done = 0;
+        long startedAt = System.nanoTime();
+
+        try (ArticleEnricherImpl standInEnricher = new ArticleEnricherImpl(standInClients, standInClients)) {
+            standInEnricher.setInlineCompletion(inlineCompletion);
+            for (int batch = 0; batch < batches; batch++) {
+                int batchSize = enrichments / batches + (batch < enrichments % batches ? 1 : 0);
+                long batchStartedAt = System.nanoTime();
+                for (int i = 0; i < batchSize; i++) {
+                    try {
+                        standInEnricher.enrichArticleWithId("warmup" + i).get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return new WarmUpReport(done, System.nanoTime() - startedAt, batchAverageNanos);
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Warm up enrichment failed", e.getCause());
+                    }
+                    done++;
+                }
+                batchAverageNanos.add((System.nanoTime() - batchStartedAt) / batchSize);
+            }
+        }
+        return new WarmUpReport(done, System.nanoTime() - startedAt, batchAverageNanos);
+    }
+
+    /**
+     * Returns the gauges and health check of the executor which waits on the client futures.
+     *
+     * @return ExecutorMonitor
+     */
+    public ExecutorMonitor getExecutorMonitor() {
+        return executorMonitor;
+    }
+
+    /**
+     * Sets the retrier used for the article and asset calls. By default every call is attempted once.
+     *
+     * @param retrier
+     */
+    public void setRetrier(Retrier retrier) {
+        this.retrier = retrier;
+    }
+
+    public Retrier getRetrier() {
+        return retrier;
+    }
+
+    /**
+     * Sets the trackers of the most requested article and asset ids. By default nothing is tracked.
+     *
+     * @param articleHeavyHitters
+     * @param assetHeavyHitters
+     */
+    public void setHeavyHitters(HeavyHitters articleHeavyHitters, HeavyHitters assetHeavyHitters) {
+        this.articleHeavyHitters = articleHeavyHitters;
+        this.assetHeavyHitters = assetHeavyHitters;
+    }
+
+    public HeavyHitters getArticleHeavyHitters() {
+        return articleHeavyHitters;
+    }
+
+    public HeavyHitters getAssetHeavyHitters() {
+        return assetHeavyHitters;
+    }
+
+    /**
+     * Sets whether the stages following a downstream call run in the thread which completes it.
+     *
+     * When false, the default, every client future is waited on in the executor, which costs a
+     * thread hop per call. When true, only the client futures which are neither done nor
+     * CompletableFutures are, the rest of the enrichment runs in the thread of the client.
+     *
+     * @param inlineCompletion
+     */
+    public void setInlineCompletion(boolean inlineCompletion) {
+        this.inlineCompletion = inlineCompletion;
+    }
 
-        return articleReferenceFuture
-                .thenCompose(articleReference -> getImageFutureFromUrl(articleReference.getHeroImageUrl())
-                    .thenCombine(getVideoFuturesFromUrls(articleReference.getVideoUrls())
-                        ,(image,videos) -> combine(articleReference, image, videos)
-        ));
+    /**
+     * Sets how many video calls of a single article can be in flight at once, 32 by default, so that
+     * an article with hundreds of videos does not take the whole executor.
+     *
+     * @param maxConcurrentAssetCalls
+     */
+    public void setMaxConcurrentAssetCalls(int maxConcurrentAssetCalls) {
+        if (maxConcurrentAssetCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentAssetCalls must be at least 1");
+        }
+        this.maxConcurrentAssetCalls = maxConcurrentAssetCalls;
+    }
+
+    /**
+     * Sets the recorder of the Flight Recorder events. By default no events are emitted.
+     *
+     * @param enrichmentRecorder
+     */
+    public void setEnrichmentRecorder(EnrichmentRecorder enrichmentRecorder) {
+        this.enrichmentRecorder = enrichmentRecorder;
     }
 
     /**
@@ -65,7 +415,7 @@ public class ArticleEnricherImpl implements ArticleEnricher {
         return new RichArticle(reference.getId()
                 , reference.getName()
                 , image
-                , videos.parallelStream()
+                , videos.stream()
                         .filter(Objects::nonNull)
                         .collect(Collectors.toList()));
     }
@@ -80,9 +430,10 @@ public class ArticleEnricherImpl implements ArticleEnricher {
      */
     public CompletableFuture<ArticleReference> getArticleReferenceFuture(String articleId) {
         if (StringUtils.isBlank(articleId)) {
-            return Futures.generateFutureException("No article found");
+            return Futures.generateFutureException(NO_ARTICLE_FOUND);
         }
-        return Futures.toCompletableFuture(articleRepositoryClient.getArticleReferenceForId(articleId), executor);
+        return retrier.execute(() ->
+                toCompletableFuture(articleRepositoryClient.getArticleReferenceForId(articleId)));
     }
 
     /**
@@ -96,8 +447,10 @@ public class ArticleEnricherImpl implements ArticleEnricher {
         if (StringUtils.isBlank(imageId)) {
             return CompletableFuture.completedFuture(null);
         }
-        return Futures.toCompletableFuture(assetsServiceClient.getImageById(imageId), executor)
-                .exceptionally(e -> null);
+        assetHeavyHitters.record(imageId);
+        CompletableFuture<Image> assetFuture = enrichmentRecorder.recordAssetCall("image", imageId, retrier.execute(() ->
+                toCompletableFuture(assetsServiceClient.getImageById(imageId))));
+        return Futures.propagateCancellation(assetFuture.exceptionally(e -> null), assetFuture);
     }
 
     /**
@@ -124,8 +477,16 @@ public class ArticleEnricherImpl implements ArticleEnricher {
         if (StringUtils.isBlank(videoId)) {
             return CompletableFuture.completedFuture(null);
         }
-        return Futures.toCompletableFuture(assetsServiceClient.getVideoById(videoId), executor)
-                .exceptionally(e -> null);
+        assetHeavyHitters.record(videoId);
+        CompletableFuture<Video> assetFuture = enrichmentRecorder.recordAssetCall("video", videoId, retrier.execute(() ->
+                toCompletableFuture(assetsServiceClient.getVideoById(videoId))));
+        return Futures.propagateCancellation(assetFuture.exceptionally(e -> null), assetFuture);
+    }
+
+    private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+        return inlineCompletion
+                ? Futures.toCompletableFutureInline(future, executor, executor.getBlockedThreadCounter())
+                : Futures.toCompletableFuture(future, executor, executor.getBlockedThreadCounter());
     }
 
     /**
@@ -138,14 +499,113 @@ public class ArticleEnricherImpl implements ArticleEnricher {
      */
     public CompletableFuture<List<Video>> getVideoFuturesFromUrls(Collection<String> videoUrls) {
         if (videoUrls.isEmpty()) {
-            return CompletableFuture.supplyAsync(() -> Collections.EMPTY_LIST);
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
-        List<CompletableFuture<Video>> videoFutures = videoUrls.stream()
+        return Futures.joinFutures(startVideoFutures(videoUrls).stream());
+    }
+
+    /**
+     * Given a collection of video urls, returns a future per video, in the same order. No more than
+     * maxConcurrentAssetCalls are called at once, the next one is called when one of them completes.
+     *
+     * @param videoUrls
+     * @return List<CompletableFuture<Video>>
+     */
+    private List<CompletableFuture<Video>> startVideoFutures(Collection<String> videoUrls) {
+        return startVideoFuturesForIds(getVideoIds(videoUrls));
+    }
+
+    private List<String> getVideoIds(Collection<String> videoUrls) {
+        return videoUrls.stream()
                 .map(videoUrl -> StringUtils.getLastPathPart(videoUrl)) // gets video ids from url
                 .filter(id -> !StringUtils.isBlank(id))  // removes null and empty
-                .map(id -> getVideoFutureFromClient(id)) // generates a future per videoId
                 .collect(Collectors.toList());
-        return Futures.joinFutures(videoFutures.stream());
+    }
+
+    private List<CompletableFuture<Video>> startVideoFuturesForIds(List<String> videoIds) {
+        if (videoIds.size() <= maxConcurrentAssetCalls) {
+            return videoIds.stream()
+                    .map(id -> getVideoFutureFromClient(id)) // generates a future per videoId
+                    .collect(Collectors.toList());
+        }
+        return new VideoWindow(videoIds).start();
+    }
+
+    /**
+     * Calls the assets service for a list of videos keeping at most maxConcurrentAssetCalls in flight.
+     *
+     * Completions call drain(), which starts the next videos. The work-in-progress counter makes a
+     * single thread run the loop at a time, so that videos completing in the calling thread do not
+     * recurse. Once a video future is cancelled, the enrichment is being cancelled and no more videos
+     * are started.
+     */
+    private class VideoWindow {
+
+        private final List<String> videoIds;
+        private final List<CompletableFuture<Video>> videoFutures;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private int nextIndex;
+
+        private VideoWindow(List<String> videoIds) {
+            this.videoIds = videoIds;
+            this.videoFutures = new ArrayList<>(videoIds.size());
+            for (int i = 0; i < videoIds.size(); i++) {
+                videoFutures.add(new CompletableFuture<>());
+            }
+        }
+
+        private List<CompletableFuture<Video>> start() {
+            drain();
+            return videoFutures;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!cancelled && nextIndex < videoIds.size() && running.get() < maxConcurrentAssetCalls) {
+                    CompletableFuture<Video> videoFuture = videoFutures.get(nextIndex);
+                    String videoId = videoIds.get(nextIndex++);
+                    if (videoFuture.isDone()) {
+                        continue;
+                    }
+                    running.incrementAndGet();
+                    CompletableFuture<Video> assetFuture;
+                    try {
+                        assetFuture = getVideoFutureFromClient(videoId);
+                    } catch (RuntimeException e) {
+                        running.decrementAndGet();
+                        fail(e);
+                        break;
+                    }
+                    Futures.propagateCancellation(videoFuture, assetFuture);
+                    assetFuture.whenComplete((video, e) -> {
+                        running.decrementAndGet();
+                        if (videoFuture.isCancelled()) {
+                            cancelled = true;
+                        } else if (e != null) {
+                            videoFuture.completeExceptionally(e);
+                        } else {
+                            videoFuture.complete(video);
+                        }
+                        drain();
+                    });
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        /**
+         * Fails the video whose call threw and the ones not called yet, no more calls are made.
+         */
+        private void fail(Throwable e) {
+            for (int i = nextIndex - 1; i < videoFutures.size(); i++) {
+                videoFutures.get(i).completeExceptionally(e);
+            }
+            nextIndex = videoIds.size();
+        }
     }
 
 }
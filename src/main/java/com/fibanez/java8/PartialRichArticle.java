@@ -0,0 +1,37 @@
+package com.fibanez.java8;
+
+import com.fibanez.java8.models.RichArticle;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A rich article with its first videos only, returned as soon as they are fetched, and the future of
+ * the rich article with all of them.
+ *
+ * @author fibanez
+ */
+public class PartialRichArticle {
+
+    private final RichArticle firstPart;
+
+    private final CompletableFuture<RichArticle> fullArticle;
+
+    public PartialRichArticle(RichArticle firstPart, CompletableFuture<RichArticle> fullArticle) {
+        this.firstPart = firstPart;
+        this.fullArticle = fullArticle;
+    }
+
+    /**
+     * @return the rich article with its hero image and its first videos
+     */
+    public RichArticle getFirstPart() {
+        return firstPart;
+    }
+
+    /**
+     * @return the rich article with all its videos, cancel it if they are not needed
+     */
+    public CompletableFuture<RichArticle> getFullArticle() {
+        return fullArticle;
+    }
+}
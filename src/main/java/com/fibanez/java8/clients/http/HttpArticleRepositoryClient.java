@@ -0,0 +1,32 @@
+package com.fibanez.java8.clients.http;
+
+import com.fibanez.java8.clients.ArticleRepositoryClient;
+import com.fibanez.java8.models.ArticleReference;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ArticleRepositoryClient over HTTP, GET {basePath}{articleId} answering an article reference in JSON.
+ *
+ * @author fibanez
+ */
+public class HttpArticleRepositoryClient implements ArticleRepositoryClient {
+
+    private final NioHttpClient httpClient;
+    private final String basePath;
+
+    public HttpArticleRepositoryClient(NioHttpClient httpClient) {
+        this(httpClient, "/articles/");
+    }
+
+    public HttpArticleRepositoryClient(NioHttpClient httpClient, String basePath) {
+        this.httpClient = httpClient;
+        this.basePath = basePath;
+    }
+
+    @Override
+    public CompletableFuture<ArticleReference> getArticleReferenceForId(String articleId) {
+        return HttpClients.get(httpClient, basePath + HttpClients.encodePathSegment(articleId),
+                JsonModels::readArticleReference);
+    }
+}
@@ -0,0 +1,39 @@
+package com.fibanez.java8.clients.http;
+
+import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.Video;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AssetsServiceClient over HTTP, GET /images/{id} and GET /videos/{id} answering JSON.
+ *
+ * @author fibanez
+ */
+public class HttpAssetsServiceClient implements AssetsServiceClient {
+
+    private final NioHttpClient httpClient;
+    private final String imagesPath;
+    private final String videosPath;
+
+    public HttpAssetsServiceClient(NioHttpClient httpClient) {
+        this(httpClient, "/images/", "/videos/");
+    }
+
+    public HttpAssetsServiceClient(NioHttpClient httpClient, String imagesPath, String videosPath) {
+        this.httpClient = httpClient;
+        this.imagesPath = imagesPath;
+        this.videosPath = videosPath;
+    }
+
+    @Override
+    public CompletableFuture<Image> getImageById(String id) {
+        return HttpClients.get(httpClient, imagesPath + HttpClients.encodePathSegment(id), JsonModels::readImage);
+    }
+
+    @Override
+    public CompletableFuture<Video> getVideoById(String id) {
+        return HttpClients.get(httpClient, videosPath + HttpClients.encodePathSegment(id), JsonModels::readVideo);
+    }
+}
@@ -0,0 +1,114 @@
+package com.fibanez.java8.clients.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of a NioHttpClient. The client copies them when it is created.
+ *
+ * @author fibanez
+ */
+public class HttpClientConfig {
+
+    private final String host;
+    private final int port;
+    private int maxConnections = 8;
+    private int maxPipelinedRequests = 1;
+    private long connectTimeoutMillis = 1000;
+    private long requestTimeoutMillis = 5000;
+    private long idleTimeoutMillis = 60000;
+    private int workerThreads = 2;
+
+    public HttpClientConfig(String host, int port) {
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port " + port);
+        }
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections kept alive to the server, requests wait for a free one above this
+     */
+    public HttpClientConfig setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public int getMaxPipelinedRequests() {
+        return maxPipelinedRequests;
+    }
+
+    /**
+     * @param maxPipelinedRequests sent on a connection before its first response arrives, 1 disables pipelining
+     */
+    public HttpClientConfig setMaxPipelinedRequests(int maxPipelinedRequests) {
+        if (maxPipelinedRequests < 1) {
+            throw new IllegalArgumentException("maxPipelinedRequests must be positive");
+        }
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        return this;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public HttpClientConfig setConnectTimeout(long timeout, TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    /**
+     * @param timeout from the call until the whole response is read, including the wait for a connection
+     */
+    public HttpClientConfig setRequestTimeout(long timeout, TimeUnit unit) {
+        this.requestTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * @param timeout after which an unused connection is closed
+     */
+    public HttpClientConfig setIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * @param workerThreads which parse the response bodies, so the selector thread only does I/O
+     */
+    public HttpClientConfig setWorkerThreads(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be positive");
+        }
+        this.workerThreads = workerThreads;
+        return this;
+    }
+}
@@ -0,0 +1,41 @@
+package com.fibanez.java8.clients.http;
+
+import com.fibanez.java8.utils.Futures;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Shared plumbing of the HTTP clients.
+ *
+ * @author fibanez
+ */
+final class HttpClients {
+
+    private HttpClients() {
+    }
+
+    /**
+     * GETs a resource and reads its body. The body is read on a worker thread of the client, so the
+     * selector thread is not held by parsing. Cancelling the returned future cancels the request.
+     */
+    static <T> CompletableFuture<T> get(NioHttpClient httpClient, String path, Function<byte[], T> reader) {
+        CompletableFuture<HttpResponse> response = httpClient.get(path);
+        return Futures.propagateCancellation(response.thenApplyAsync(r -> {
+            if (r.getStatusCode() < 200 || r.getStatusCode() >= 300) {
+                throw new HttpStatusException(path, r.getStatusCode());
+            }
+            return reader.apply(r.getBody());
+        }, httpClient.workerExecutor()), response);
+    }
+
+    static String encodePathSegment(String segment) {
+        try {
+            return URLEncoder.encode(segment, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.fibanez.java8.clients.http;
+
+import java.util.Map;
+
+/**
+ * A complete HTTP response, header names are lower case.
+ *
+ * @author fibanez
+ */
+public class HttpResponse {
+
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    public HttpResponse(int statusCode, Map<String, String> headers, byte[] body) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
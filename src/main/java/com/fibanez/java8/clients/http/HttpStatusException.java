@@ -0,0 +1,22 @@
+package com.fibanez.java8.clients.http;
+
+/**
+ * Thrown when a service answers with a status other than 2xx.
+ *
+ * @author fibanez
+ */
+public class HttpStatusException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(String path, int statusCode) {
+        super("GET " + path + " returned " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
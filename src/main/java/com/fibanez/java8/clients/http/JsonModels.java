@@ -0,0 +1,92 @@
+package com.fibanez.java8.clients.http;
+
+import com.fibanez.java8.json.JsonReader;
+import com.fibanez.java8.models.ArticleReference;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.Video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the models from the JSON bodies of the services. Unknown members are skipped.
+ *
+ * @author fibanez
+ */
+final class JsonModels {
+
+    private JsonModels() {
+    }
+
+    /**
+     * {"id": "...", "name": "...", "heroImageUrl": "...", "videoUrls": ["...", ...]}
+     *
+     * A null videoUrls is read as an empty list.
+     */
+    static ArticleReference readArticleReference(byte[] json) {
+        JsonReader reader = new JsonReader(json);
+        String id = null;
+        String name = null;
+        String heroImageUrl = null;
+        List<String> videoUrls = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id": id = reader.nextString(); break;
+                case "name": name = reader.nextString(); break;
+                case "heroImageUrl": heroImageUrl = reader.nextString(); break;
+                case "videoUrls":
+                    if (reader.nextNull()) {
+                        break;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        videoUrls.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ArticleReference(id, name, heroImageUrl, videoUrls);
+    }
+
+    /**
+     * {"id": "...", "altText": "..."}
+     */
+    static Image readImage(byte[] json) {
+        JsonReader reader = new JsonReader(json);
+        String id = null;
+        String altText = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id": id = reader.nextString(); break;
+                case "altText": altText = reader.nextString(); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Image(id, altText);
+    }
+
+    /**
+     * {"id": "...", "caption": "..."}
+     */
+    static Video readVideo(byte[] json) {
+        JsonReader reader = new JsonReader(json);
+        String id = null;
+        String caption = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id": id = reader.nextString(); break;
+                case "caption": caption = reader.nextString(); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Video(id, caption);
+    }
+}
@@ -0,0 +1,538 @@
+package com.fibanez.java8.clients.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking HTTP/1.1 client for one server, built on a single selector thread.
+ *
+ * Connections are kept alive and reused, up to HttpClientConfig.getMaxConnections(). An idle connection
+ * is preferred, then a new one, and only when the pool is full are requests pipelined onto busy connections,
+ * up to HttpClientConfig.getMaxPipelinedRequests() each. Requests above that wait in a queue.
+ *
+ * No thread blocks while a request is in flight. The returned futures are completed on the selector
+ * thread, so their continuations must not block; response bodies are better parsed on workerExecutor().
+ * Cancelling a future which is still queued removes the request before it is sent.
+ *
+ * When the server closes a reused keep-alive connection before any byte of the response, as it does
+ * when its idle timeout expires while a request is on the way, the request is sent once more on
+ * another connection. Only GETs are sent, so they are safe to repeat.
+ *
+ * @author fibanez
+ */
+public class NioHttpClient implements AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final InetSocketAddress address;
+    private final String hostHeader;
+    private final int maxConnections;
+    private final int maxPipelinedRequests;
+    private final long connectTimeoutNanos;
+    private final long requestTimeoutNanos;
+    private final long idleTimeoutNanos;
+
+    private final Selector selector;
+    private final Thread eventLoop;
+    private final ExecutorService workers;
+    private final Executor workerExecutor;
+    private final Queue<Request> submitted = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder connectionsOpened = new LongAdder();
+
+    // Only touched by the event loop
+    private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    public NioHttpClient(HttpClientConfig config) {
+        this.address = new InetSocketAddress(config.getHost(), config.getPort());
+        this.hostHeader = hostHeader(config.getHost(), config.getPort());
+        this.maxConnections = config.getMaxConnections();
+        this.maxPipelinedRequests = config.getMaxPipelinedRequests();
+        this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getConnectTimeoutMillis());
+        this.requestTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getRequestTimeoutMillis());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(config.getWorkerThreads(), task -> {
+            Thread worker = new Thread(task, "http-client-worker-" + hostHeader + "-" + workerCount.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+        // Once the client is closed, the last failed requests are handled in the thread completing them
+        this.workerExecutor = task -> {
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
+        this.eventLoop = new Thread(this::run, "http-client-" + hostHeader);
+        this.eventLoop.setDaemon(true);
+        this.eventLoop.start();
+    }
+
+    /**
+     * @param path absolute path of the resource, already encoded
+     * @return the response, failed with a TimeoutException if it did not arrive in time
+     */
+    public CompletableFuture<HttpResponse> get(String path) {
+        Request request = new Request(path, encodeRequest(path), System.nanoTime() + requestTimeoutNanos);
+        if (closed) {
+            request.fail(new IOException("Client closed"));
+            return request.future;
+        }
+        submitted.add(request);
+        selector.wakeup();
+        if (closed) {
+            request.fail(new IOException("Client closed"));
+        }
+        return request.future;
+    }
+
+    /**
+     * @return connections currently open to the server
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return connections opened since the client was created
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    /**
+     * @return executor of the client's worker threads, for the work which must not run on the selector thread
+     */
+    Executor workerExecutor() {
+        return workerExecutor;
+    }
+
+    /**
+     * Closes every connection, fails the requests still pending and stops the worker threads once
+     * they have run what was handed to them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != eventLoop) {
+            try {
+                eventLoop.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * @return host:port, the host between brackets if it is an IPv6 literal
+     */
+    static String hostHeader(String host, int port) {
+        boolean ipv6 = host.indexOf(':') >= 0 && !host.startsWith("[");
+        return (ipv6 ? "[" + host + "]" : host) + ":" + port;
+    }
+
+    private ByteBuffer encodeRequest(String path) {
+        String request = "GET " + path + " HTTP/1.1\r\n"
+                + "Host: " + hostHeader + "\r\n"
+                + "Accept: application/json\r\n"
+                + "\r\n";
+        return ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select(selectTimeoutMillis(System.nanoTime()));
+                long now = System.nanoTime();
+
+                Request request;
+                while ((request = submitted.poll()) != null) {
+                    waiting.add(request);
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key, (Connection) key.attachment(), now);
+                }
+
+                expire(now);
+                dispatch(now);
+            }
+        } catch (IOException | RuntimeException e) {
+            closed = true;
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void handle(SelectionKey key, Connection connection, long now) {
+        try {
+            if (key.isValid() && key.isConnectable()) {
+                connection.finishConnect(now);
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection, now);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            close(connection, e);
+        }
+    }
+
+    private void read(Connection connection, long now) throws IOException {
+        readBuffer.clear();
+        int read = connection.channel.read(readBuffer);
+        if (read < 0) {
+            HttpResponse last = connection.parser.finish();
+            if (last != null) {
+                connection.complete(last);
+            }
+            if (connection.responses > 0 && connection.parser.isBetweenResponses()) {
+                retryUnanswered(connection);
+            }
+            close(connection, new IOException("Connection closed by server"));
+            return;
+        }
+        readBuffer.flip();
+        HttpResponse response;
+        while ((response = connection.parser.parse(readBuffer)) != null) {
+            connection.complete(response);
+            if (!connection.parser.isKeepAlive()) {
+                requeue(connection);
+                close(connection, null);
+                return;
+            }
+        }
+        if (connection.inFlight.isEmpty()) {
+            connection.idleSince = now;
+        }
+    }
+
+    /**
+     * Fails the requests which timed out, and closes connections which took too long to connect or stayed idle.
+     * A connection with a timed out request is closed, as its late response would be taken for the next one.
+     */
+    private void expire(long now) {
+        Iterator<Request> queued = waiting.iterator();
+        while (queued.hasNext()) {
+            Request request = queued.next();
+            if (request.future.isDone()) {
+                queued.remove();
+            } else if (now - request.deadline >= 0) {
+                queued.remove();
+                request.timeOut();
+            }
+        }
+
+        for (Connection connection : new ArrayList<>(connections)) {
+            if (!connection.connected && now - connection.connectDeadline >= 0) {
+                close(connection, new ConnectException("Connect to " + hostHeader + " timed out"));
+            } else if (connection.hasExpired(now)) {
+                for (Iterator<Request> it = connection.inFlight.iterator(); it.hasNext(); ) {
+                    Request request = it.next();
+                    if (now - request.deadline >= 0) {
+                        it.remove();
+                        request.timeOut();
+                    }
+                }
+                requeue(connection);
+                close(connection, null);
+            } else if (connection.connected && connection.inFlight.isEmpty()
+                    && now - connection.idleSince >= idleTimeoutNanos) {
+                close(connection, null);
+            }
+        }
+    }
+
+    private void dispatch(long now) {
+        while (!waiting.isEmpty()) {
+            Request request = waiting.peek();
+            if (request.future.isDone()) {
+                waiting.poll();
+                continue;
+            }
+            Connection connection = pickConnection();
+            if (connection == null) {
+                if (connections.size() >= maxConnections) {
+                    return;
+                }
+                try {
+                    connection = open(now);
+                } catch (IOException e) {
+                    waiting.poll();
+                    request.fail(e);
+                    continue;
+                }
+            }
+            waiting.poll();
+            try {
+                connection.send(request);
+            } catch (IOException e) {
+                close(connection, e);
+            }
+        }
+    }
+
+    /**
+     * @return an idle connection, else null while the pool can grow, else the least loaded connection able to pipeline
+     */
+    private Connection pickConnection() {
+        Connection leastLoaded = null;
+        for (Connection connection : connections) {
+            int load = connection.inFlight.size();
+            if (load == 0) {
+                return connection;
+            }
+            if (load < maxPipelinedRequests && connection.connected
+                    && (leastLoaded == null || load < leastLoaded.inFlight.size())) {
+                leastLoaded = connection;
+            }
+        }
+        return connections.size() < maxConnections ? null : leastLoaded;
+    }
+
+    private Connection open(long now) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            boolean connected = channel.connect(address);
+            Connection connection = new Connection(channel, connected, now);
+            connection.key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, connection);
+            connections.add(connection);
+            openConnections.incrementAndGet();
+            connectionsOpened.increment();
+            return connection;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the requests still in flight on a connection back to the head of the queue, in order.
+     * Only GETs are sent, so they are safe to repeat.
+     */
+    private void requeue(Connection connection) {
+        Iterator<Request> it = connection.inFlight.descendingIterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            if (!request.future.isDone()) {
+                waiting.addFirst(request);
+            }
+        }
+        connection.inFlight.clear();
+    }
+
+    /**
+     * Moves the requests in flight on a reused connection which the server closed before answering
+     * them back to the head of the queue, once each, so that a stale connection does not fail them.
+     */
+    private void retryUnanswered(Connection connection) {
+        Iterator<Request> it = connection.inFlight.descendingIterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            if (!request.future.isDone() && !request.retried) {
+                request.retried = true;
+                it.remove();
+                waiting.addFirst(request);
+            }
+        }
+    }
+
+    private void close(Connection connection, IOException cause) {
+        if (connections.remove(connection)) {
+            openConnections.decrementAndGet();
+        }
+        if (connection.key != null) {
+            connection.key.cancel();
+        }
+        closeQuietly(connection.channel);
+        Request request;
+        while ((request = connection.inFlight.poll()) != null) {
+            request.fail(cause != null ? cause : new IOException("Connection closed"));
+        }
+    }
+
+    private void shutdown() {
+        IOException cause = new IOException("Client closed");
+        for (Connection connection : new ArrayList<>(connections)) {
+            close(connection, cause);
+        }
+        Request request;
+        while ((request = waiting.poll()) != null) {
+            request.fail(cause);
+        }
+        while ((request = submitted.poll()) != null) {
+            request.fail(cause);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * @return how long the selector may block before a timeout is due, 0 if nothing can time out
+     */
+    private long selectTimeoutMillis(long now) {
+        long next = Long.MAX_VALUE;
+        if (!waiting.isEmpty()) {
+            next = Math.min(next, waiting.peek().deadline - now);
+        }
+        for (Connection connection : connections) {
+            if (!connection.connected) {
+                next = Math.min(next, connection.connectDeadline - now);
+            }
+            for (Request request : connection.inFlight) {
+                next = Math.min(next, request.deadline - now);
+            }
+            if (connection.inFlight.isEmpty()) {
+                next = Math.min(next, connection.idleSince + idleTimeoutNanos - now);
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next) + 1);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already unusable
+        }
+    }
+
+    private static final class Request {
+        private final String path;
+        private final ByteBuffer bytes;
+        private final long deadline;
+        private final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        private boolean retried;
+
+        private Request(String path, ByteBuffer bytes, long deadline) {
+            this.path = path;
+            this.bytes = bytes;
+            this.deadline = deadline;
+        }
+
+        private void fail(Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+
+        private void timeOut() {
+            future.completeExceptionally(new TimeoutException("GET " + path + " timed out"));
+        }
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ArrayDeque<Request> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private final ResponseParser parser = new ResponseParser();
+        private final long connectDeadline;
+        private SelectionKey key;
+        private boolean connected;
+        private long idleSince;
+        private int responses;
+
+        private Connection(SocketChannel channel, boolean connected, long now) {
+            this.channel = channel;
+            this.connected = connected;
+            this.connectDeadline = now + connectTimeoutNanos;
+            this.idleSince = now;
+        }
+
+        private void finishConnect(long now) throws IOException {
+            if (channel.finishConnect()) {
+                connected = true;
+                idleSince = now;
+                flush();
+            }
+        }
+
+        private void send(Request request) throws IOException {
+            inFlight.add(request);
+            pendingWrites.add(request.bytes.duplicate());
+            if (connected) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the pending requests with a single gathering write where possible, so pipelined
+         * requests leave together.
+         */
+        private void flush() throws IOException {
+            if (!pendingWrites.isEmpty()) {
+                channel.write(pendingWrites.toArray(new ByteBuffer[0]));
+                while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                    pendingWrites.poll();
+                }
+            }
+            key.interestOps(pendingWrites.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private void complete(HttpResponse response) throws IOException {
+            Request request = inFlight.poll();
+            if (request == null) {
+                throw new IOException("Unexpected response from " + hostHeader);
+            }
+            responses++;
+            request.future.complete(response);
+        }
+
+        private boolean hasExpired(long now) {
+            for (Request request : inFlight) {
+                if (now - request.deadline >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.fibanez.java8.clients.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental parser of HTTP/1.1 responses, fed with whatever bytes a read returned.
+ *
+ * Bodies may be sized by Content-Length, chunked, or delimited by the end of the connection.
+ * Not thread safe, each connection has its own parser.
+ *
+ * @author fibanez
+ */
+final class ResponseParser {
+
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int MAX_BODY_LENGTH = 16 * 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private enum State { STATUS_LINE, HEADERS, BODY, BODY_UNTIL_CLOSE, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS }
+
+    private State state = State.STATUS_LINE;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lineDone;
+
+    private int statusCode;
+    private boolean http10;
+    private Map<String, String> headers;
+    private byte[] body;
+    private int bodyLength;
+    private int remaining;
+    private boolean keepAlive = true;
+
+    /**
+     * Consumes bytes until a response is complete or the buffer is empty.
+     *
+     * @return the completed response, or null if more bytes are needed
+     */
+    HttpResponse parse(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case STATUS_LINE:
+                    if (readLine(buffer) && lineLength > 0) {
+                        parseStatusLine();
+                        headers = new HashMap<>();
+                        state = State.HEADERS;
+                    }
+                    break;
+                case HEADERS:
+                    if (readLine(buffer)) {
+                        if (lineLength > 0) {
+                            parseHeader();
+                        } else {
+                            HttpResponse response = headersDone();
+                            if (response != null) {
+                                return response;
+                            }
+                        }
+                    }
+                    break;
+                case BODY:
+                    readBody(buffer);
+                    if (remaining == 0) {
+                        return complete();
+                    }
+                    break;
+                case BODY_UNTIL_CLOSE:
+                    remaining = buffer.remaining();
+                    readBody(buffer);
+                    break;
+                case CHUNK_SIZE:
+                    if (readLine(buffer)) {
+                        remaining = parseChunkSize();
+                        state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                    }
+                    break;
+                case CHUNK_DATA:
+                    readBody(buffer);
+                    if (remaining == 0) {
+                        state = State.CHUNK_END;
+                    }
+                    break;
+                case CHUNK_END:
+                    if (readLine(buffer)) {
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case TRAILERS:
+                    if (readLine(buffer) && lineLength == 0) {
+                        return complete();
+                    }
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called when the server closes the connection.
+     *
+     * @return the response whose body ended with the connection, or null
+     */
+    HttpResponse finish() {
+        return state == State.BODY_UNTIL_CLOSE ? complete() : null;
+    }
+
+    /**
+     * @return true if no byte of a next response has been received since the last completed one
+     */
+    boolean isBetweenResponses() {
+        return state == State.STATUS_LINE && (lineDone || lineLength == 0);
+    }
+
+    /**
+     * @return false if the connection must not be reused after the last completed response
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    private HttpResponse headersDone() throws IOException {
+        if (statusCode >= 100 && statusCode < 200) {
+            state = State.STATUS_LINE;
+            return null;
+        }
+        String connection = headers.get("connection");
+        keepAlive = http10 ? "keep-alive".equalsIgnoreCase(connection) : !"close".equalsIgnoreCase(connection);
+
+        String transferEncoding = headers.get("transfer-encoding");
+        String contentLength = headers.get("content-length");
+        if (statusCode == 204 || statusCode == 304) {
+            return complete();
+        }
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            body = new byte[1024];
+            state = State.CHUNK_SIZE;
+            return null;
+        }
+        if (contentLength != null) {
+            remaining = parseContentLength(contentLength);
+            if (remaining == 0) {
+                return complete();
+            }
+            body = new byte[remaining];
+            state = State.BODY;
+            return null;
+        }
+        keepAlive = false;
+        body = new byte[1024];
+        state = State.BODY_UNTIL_CLOSE;
+        return null;
+    }
+
+    private HttpResponse complete() {
+        byte[] content = body == null ? EMPTY : bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength);
+        HttpResponse response = new HttpResponse(statusCode, headers, content);
+        state = State.STATUS_LINE;
+        headers = null;
+        body = null;
+        bodyLength = 0;
+        remaining = 0;
+        return response;
+    }
+
+    private void readBody(ByteBuffer buffer) throws IOException {
+        int count = Math.min(remaining, buffer.remaining());
+        if (bodyLength + count > body.length) {
+            if (bodyLength + count > MAX_BODY_LENGTH) {
+                throw new IOException("Response body too large");
+            }
+            body = Arrays.copyOf(body, Math.max(body.length * 2, bodyLength + count));
+        }
+        buffer.get(body, bodyLength, count);
+        bodyLength += count;
+        remaining -= count;
+    }
+
+    /**
+     * @return true once a whole line is buffered, without its line terminator
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        if (lineDone) {
+            lineLength = 0;
+            lineDone = false;
+        }
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                lineDone = true;
+                return true;
+            }
+            if (lineLength == line.length) {
+                if (lineLength == MAX_LINE_LENGTH) {
+                    throw new IOException("Response line too long");
+                }
+                line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+            }
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    private void parseStatusLine() throws IOException {
+        String status = lineAsString();
+        if (!status.startsWith("HTTP/1.") || status.length() < 12) {
+            throw new IOException("Invalid status line: " + status);
+        }
+        http10 = status.charAt(7) == '0';
+        try {
+            statusCode = Integer.parseInt(status.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + status);
+        }
+    }
+
+    private void parseHeader() throws IOException {
+        String header = lineAsString();
+        int colon = header.indexOf(':');
+        if (colon <= 0) {
+            throw new IOException("Invalid header: " + header);
+        }
+        headers.put(header.substring(0, colon).trim().toLowerCase(), header.substring(colon + 1).trim());
+    }
+
+    private int parseChunkSize() throws IOException {
+        String size = lineAsString();
+        int extension = size.indexOf(';');
+        try {
+            int chunkSize = Integer.parseInt((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+            if (chunkSize < 0) {
+                throw new IOException("Invalid chunk size: " + size);
+            }
+            return chunkSize;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + size);
+        }
+    }
+
+    private static int parseContentLength(String contentLength) throws IOException {
+        try {
+            long length = Long.parseLong(contentLength);
+            if (length < 0 || length > MAX_BODY_LENGTH) {
+                throw new IOException("Invalid Content-Length: " + contentLength);
+            }
+            return (int) length;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length: " + contentLength);
+        }
+    }
+
+    private String lineAsString() {
+        return new String(line, 0, lineLength, StandardCharsets.ISO_8859_1);
+    }
+}
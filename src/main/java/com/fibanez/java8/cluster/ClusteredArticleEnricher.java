@@ -0,0 +1,227 @@
+package com.fibanez.java8.cluster;
+
+import com.fibanez.java8.ArticleEnricher;
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.utils.Futures;
+import com.fibanez.java8.utils.StringUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * ArticleEnricher for a cluster of nodes, each article is enriched by the node which owns it on the
+ * HashRing so its state is kept in one node only.
+ *
+ * Articles owned by this node are enriched locally, the others are forwarded to their owner through
+ * the PeerTransport. The owner coalesces concurrent enrichments of the same article, wherever they come
+ * from, into a single one, and may keep the articles it enriched in an owner cache. If the owner cannot
+ * be reached the article is enriched locally, a failure of the enrichment itself is returned as is.
+ * Articles of other nodes which are hot can be kept in a NearCache to avoid the network hop.
+ *
+ * @author fibanez
+ */
+public class ClusteredArticleEnricher implements ArticleEnricher {
+
+    private final String localNodeId;
+
+    private final HashRing ring;
+
+    private final ArticleEnricherImpl localEnricher;
+
+    private final PeerTransport transport;
+
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private NearCache nearCache;
+
+    private Predicate<String> hotKeys = articleId -> false;
+
+    private NearCache ownerCache;
+
+    public ClusteredArticleEnricher(String localNodeId, HashRing ring, ArticleEnricherImpl localEnricher,
+                                    PeerTransport transport) {
+        this.localNodeId = localNodeId;
+        this.ring = ring;
+        this.localEnricher = localEnricher;
+        this.transport = transport;
+    }
+
+    /**
+     * Sets the cache for the hot articles owned by other nodes.
+     *
+     * @param nearCache
+     * @param hotKeys tells which article ids are hot enough to be cached
+     */
+    public void setNearCache(NearCache nearCache, Predicate<String> hotKeys) {
+        this.nearCache = nearCache;
+        this.hotKeys = hotKeys;
+    }
+
+    /**
+     * Sets the cache for the articles enriched by this node, checked before enriching locally.
+     *
+     * @param ownerCache
+     */
+    public void setOwnerCache(NearCache ownerCache) {
+        this.ownerCache = ownerCache;
+    }
+
+    @Override
+    public CompletableFuture<RichArticle> enrichArticleWithId(String articleId) {
+        if (StringUtils.isBlank(articleId)) {
+            return localEnricher.enrichArticleWithId(articleId);
+        }
+        String owner = ring.ownerOf(articleId);
+        if (owner == null || owner.equals(localNodeId)) {
+            return enrichLocally(articleId);
+        }
+
+        boolean cacheable = nearCache != null && hotKeys.test(articleId);
+        if (cacheable) {
+            RichArticle cached = nearCache.get(articleId);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<RichArticle> richArticleFuture = new CompletableFuture<>();
+        CompletableFuture<RichArticle> forwardedFuture = transport.forward(owner, articleId);
+        Futures.propagateCancellation(richArticleFuture, forwardedFuture);
+        forwardedFuture.whenComplete((richArticle, e) -> {
+            if (e == null) {
+                if (cacheable) {
+                    nearCache.put(articleId, richArticle);
+                }
+                richArticleFuture.complete(richArticle);
+            } else if (richArticleFuture.isDone()) {
+                return;
+            } else if (isPeerUnavailable(e)) {
+                CompletableFuture<RichArticle> localFuture = enrichLocally(articleId);
+                Futures.propagateCancellation(richArticleFuture, localFuture);
+                Futures.completeWith(localFuture, richArticleFuture);
+            } else {
+                richArticleFuture.completeExceptionally(e);
+            }
+        });
+        return richArticleFuture;
+    }
+
+    /**
+     * Enriches the article in this node, whoever owns it. Called by the PeerTransport for the
+     * requests forwarded by other nodes.
+     *
+     * Joins the enrichment of the same article already in flight, if any. Cancelling the returned
+     * future only cancels the shared enrichment once every caller has cancelled.
+     *
+     * @param articleId
+     * @return CompletableFuture<RichArticle>
+     */
+    public CompletableFuture<RichArticle> enrichLocally(String articleId) {
+        if (StringUtils.isBlank(articleId)) {
+            return localEnricher.enrichArticleWithId(articleId);
+        }
+        if (ownerCache != null) {
+            RichArticle cached = ownerCache.get(articleId);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        while (true) {
+            Flight flight = inFlight.get(articleId);
+            if (flight == null) {
+                Flight started = new Flight();
+                flight = inFlight.putIfAbsent(articleId, started);
+                if (flight == null) {
+                    flight = started;
+                    start(articleId, started);
+                }
+            }
+            CompletableFuture<RichArticle> joined = flight.join();
+            if (joined != null) {
+                return joined;
+            }
+            // Every caller of that flight cancelled it meanwhile, start another one
+        }
+    }
+
+    /**
+     * @return number of distinct articles being enriched locally
+     */
+    public int getInFlightEnrichments() {
+        return inFlight.size();
+    }
+
+    public boolean isOwner(String articleId) {
+        return !StringUtils.isBlank(articleId) && localNodeId.equals(ring.ownerOf(articleId));
+    }
+
+    public String getLocalNodeId() {
+        return localNodeId;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    private void start(String articleId, Flight flight) {
+        flight.shared.whenComplete((richArticle, e) -> {
+            inFlight.remove(articleId, flight);
+            if (e == null && ownerCache != null) {
+                ownerCache.put(articleId, richArticle);
+            }
+        });
+        CompletableFuture<RichArticle> enrichment = localEnricher.enrichArticleWithId(articleId);
+        Futures.propagateCancellation(flight.shared, enrichment);
+        Futures.completeWith(enrichment, flight.shared);
+    }
+
+    private static boolean isPeerUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PeerUnavailableException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An enrichment in flight, shared by its callers.
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<RichArticle> shared = new CompletableFuture<>();
+
+        private int callers;
+
+        private boolean abandoned;
+
+        /**
+         * @return a future of the shared enrichment for one more caller, or null if it was abandoned
+         */
+        private synchronized CompletableFuture<RichArticle> join() {
+            if (abandoned) {
+                return null;
+            }
+            callers++;
+            CompletableFuture<RichArticle> caller = new CompletableFuture<>();
+            caller.whenComplete((richArticle, e) -> {
+                if (caller.isCancelled()) {
+                    leave();
+                }
+            });
+            Futures.completeWith(shared, caller);
+            return caller;
+        }
+
+        private synchronized void leave() {
+            if (--callers == 0 && !shared.isDone()) {
+                abandoned = true;
+                shared.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.fibanez.java8.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring which assigns every key to an owner node.
+ *
+ * Each node is placed on the ring virtualNodes times so that keys are evenly spread, and adding or
+ * removing a node only moves the keys of the ring segments it takes or releases, roughly 1/n of
+ * them. Lookups read an immutable snapshot of the ring and never lock; membership changes copy it.
+ *
+ * @author fibanez
+ */
+public class HashRing {
+
+    private final int virtualNodes;
+
+    private volatile NavigableMap<Long, String> ring = Collections.emptyNavigableMap();
+
+    private volatile Set<String> nodes = Collections.emptySet();
+
+    public HashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a node to the ring, it takes ownership of some keys of every other node.
+     *
+     * @param nodeId
+     */
+    public synchronized void addNode(String nodeId) {
+        if (nodes.contains(nodeId)) {
+            return;
+        }
+        TreeMap<Long, String> newRing = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            newRing.putIfAbsent(hash(nodeId + "#" + i), nodeId);
+        }
+        Set<String> newNodes = new LinkedHashSet<>(nodes);
+        newNodes.add(nodeId);
+        ring = Collections.unmodifiableNavigableMap(newRing);
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    /**
+     * Removes a node from the ring, its keys move to the next nodes on the ring.
+     *
+     * @param nodeId
+     */
+    public synchronized void removeNode(String nodeId) {
+        if (!nodes.contains(nodeId)) {
+            return;
+        }
+        TreeMap<Long, String> newRing = new TreeMap<>(ring);
+        newRing.values().removeIf(nodeId::equals);
+        Set<String> newNodes = new LinkedHashSet<>(nodes);
+        newNodes.remove(nodeId);
+        ring = Collections.unmodifiableNavigableMap(newRing);
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    /**
+     * Returns the node which owns the key.
+     *
+     * @param key
+     * @return node id, or null if the ring has no nodes
+     */
+    public String ownerOf(String key) {
+        NavigableMap<Long, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = current.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * 64 bit FNV-1a over the UTF-8 bytes followed by the murmur3 finalizer, which spreads the
+     * similar ids (article1, article2...) over the whole ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
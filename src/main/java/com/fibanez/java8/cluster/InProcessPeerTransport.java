@@ -0,0 +1,36 @@
+package com.fibanez.java8.cluster;
+
+import com.fibanez.java8.models.RichArticle;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PeerTransport which calls the other nodes in the same JVM. Used for tests.
+ *
+ * @author fibanez
+ */
+public class InProcessPeerTransport implements PeerTransport {
+
+    private final Map<String, ClusteredArticleEnricher> nodes = new ConcurrentHashMap<>();
+
+    public void register(ClusteredArticleEnricher node) {
+        nodes.put(node.getLocalNodeId(), node);
+    }
+
+    public void unregister(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public CompletableFuture<RichArticle> forward(String nodeId, String articleId) {
+        ClusteredArticleEnricher node = nodes.get(nodeId);
+        if (node == null) {
+            CompletableFuture<RichArticle> unavailable = new CompletableFuture<>();
+            unavailable.completeExceptionally(new PeerUnavailableException("Unknown node " + nodeId));
+            return unavailable;
+        }
+        return node.enrichLocally(articleId);
+    }
+}
@@ -0,0 +1,67 @@
+package com.fibanez.java8.cluster;
+
+import com.fibanez.java8.models.RichArticle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small least recently used cache of articles, with a time to live.
+ *
+ * @author fibanez
+ */
+public class NearCache {
+
+    private final long ttlNanos;
+
+    private final Map<String, CachedArticle> entries;
+
+    public NearCache(int maxEntries, long ttl, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<String, CachedArticle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedArticle> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param articleId
+     * @return the cached article, or null if it is missing or expired
+     */
+    public synchronized RichArticle get(String articleId) {
+        CachedArticle entry = entries.get(articleId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(articleId);
+            return null;
+        }
+        return entry.article;
+    }
+
+    public synchronized void put(String articleId, RichArticle article) {
+        entries.put(articleId, new CachedArticle(article, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(String articleId) {
+        entries.remove(articleId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class CachedArticle {
+        private final RichArticle article;
+        private final long createdAt;
+
+        private CachedArticle(RichArticle article, long createdAt) {
+            this.article = article;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.fibanez.java8.cluster;
+
+import com.fibanez.java8.models.RichArticle;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends an enrichment to the node which owns the article.
+ *
+ * The receiving node must enrich the article with ClusteredArticleEnricher.enrichLocally() and never
+ * forward it again, so that two nodes with a different view of the ring cannot bounce a request between
+ * them. When the node cannot be reached the future must fail with a PeerUnavailableException, or an
+ * IOException, so that the caller can tell it apart from a failed enrichment.
+ *
+ * @author fibanez
+ */
+public interface PeerTransport {
+    CompletableFuture<RichArticle> forward(String nodeId, String articleId);
+}
@@ -0,0 +1,20 @@
+package com.fibanez.java8.cluster;
+
+/**
+ * Thrown by a PeerTransport when the node cannot be reached, as opposed to the node failing the
+ * enrichment itself. Only this failure makes the article be enriched locally instead.
+ *
+ * @author fibanez
+ */
+public class PeerUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PeerUnavailableException(String message) {
+        super(message);
+    }
+
+    public PeerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,112 @@
+package com.fibanez.java8.hotkeys;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch, estimates how many times a key has been seen in a fixed amount of memory.
+ *
+ * The estimate is never lower than the real count and, with probability 1 - 2^-depth, it is higher
+ * by at most 2 * total / width. Counters are atomic so add() never locks.
+ *
+ * The rows are indexed by independent hashes, derived from the two halves of a 64-bit hash of the key
+ * (double hashing), so keys colliding on String.hashCode() do not collide on every row.
+ *
+ * @author fibanez
+ */
+public class CountMinSketch {
+
+    private static final int MAX_DEPTH = 8;
+
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param depth number of rows, from 1 to 8
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("width must be positive and depth between 1 and " + MAX_DEPTH);
+        }
+        int powerOfTwo = 1;
+        while (powerOfTwo < width) {
+            powerOfTwo <<= 1;
+        }
+        this.width = powerOfTwo;
+        this.depth = depth;
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(this.width * depth);
+    }
+
+    /**
+     * Counts the key once.
+     *
+     * @param key
+     * @return the estimated count of the key after adding it
+     */
+    public long add(String key) {
+        long hash = hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @param key
+     * @return the estimated count of the key
+     */
+    public long estimate(String key) {
+        long hash = hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves every counter so that old traffic weighs less than recent one.
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Row i takes h1 + i * h2, h2 being odd so that it spans every counter of a power of two row.
+     */
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+
+    /**
+     * FNV-1a over the chars of the key, mixed with the MurmurHash3 finalizer.
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,186 @@
+package com.fibanez.java8.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming tracker of the most requested keys.
+ *
+ * Keys are counted in a CountMinSketch and the ones whose estimate reaches the admission threshold,
+ * the k-th highest estimate, are kept as candidates. Once there are twice k candidates they are
+ * trimmed back to the top k with a heap. Every decay period the counts are halved so that keys which
+ * stop being requested drop out of the top.
+ *
+ * record() never blocks: counters are atomic and the trim and decay are done by the one thread
+ * which wins a compare and set, the others carry on.
+ *
+ * A key is never hot below the minimum count, so that a key seen once is not hot just because the
+ * top k is not full yet.
+ *
+ * isHot() can be used as the predicate of caching and prefetch policies, i.e.
+ * {@code clusteredEnricher.setNearCache(nearCache, heavyHitters::isHot)}.
+ *
+ * @author fibanez
+ */
+public class HeavyHitters {
+
+    private static final long DEFAULT_MIN_COUNT = 2;
+
+    private static final HeavyHitters DISABLED = new HeavyHitters(1, 1, 1, Long.MAX_VALUE, TimeUnit.NANOSECONDS) {
+        @Override
+        public void record(String key) {
+        }
+    };
+
+    private final int k;
+    private final long minCount;
+    private final long decayPeriodNanos;
+    private final CountMinSketch sketch;
+    private final ConcurrentHashMap<String, Boolean> candidates = new ConcurrentHashMap<>();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    private final AtomicLong nextDecay;
+
+    private volatile long admissionThreshold;
+
+    /**
+     * @param k number of keys to track
+     * @param width counters per row of the sketch
+     * @param depth rows of the sketch
+     * @param decayPeriod how often the counts are halved
+     * @param unit
+     */
+    public HeavyHitters(int k, int width, int depth, long decayPeriod, TimeUnit unit) {
+        this(k, DEFAULT_MIN_COUNT, width, depth, decayPeriod, unit);
+    }
+
+    /**
+     * @param k number of keys to track
+     * @param minCount estimated count below which a key is never hot
+     * @param width counters per row of the sketch
+     * @param depth rows of the sketch
+     * @param decayPeriod how often the counts are halved
+     * @param unit
+     */
+    public HeavyHitters(int k, long minCount, int width, int depth, long decayPeriod, TimeUnit unit) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        if (minCount < 1) {
+            throw new IllegalArgumentException("minCount must be at least 1");
+        }
+        this.k = k;
+        this.minCount = minCount;
+        this.decayPeriodNanos = unit.toNanos(decayPeriod);
+        this.sketch = new CountMinSketch(width, depth);
+        this.nextDecay = new AtomicLong(System.nanoTime() + decayPeriodNanos);
+    }
+
+    /**
+     * Returns a tracker which records nothing.
+     *
+     * @return HeavyHitters
+     */
+    public static HeavyHitters disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Counts one request of the key.
+     *
+     * @param key
+     */
+    public void record(String key) {
+        maybeDecay();
+        long estimate = sketch.add(key);
+        if (estimate >= admissionThreshold && candidates.putIfAbsent(key, Boolean.TRUE) == null
+                && candidates.size() > 2 * k) {
+            trim();
+        }
+    }
+
+    /**
+     * @param key
+     * @return true if the key is estimated to be in the top k and seen at least the minimum count
+     */
+    public boolean isHot(String key) {
+        long estimate = sketch.estimate(key);
+        return estimate >= Math.max(minCount, admissionThreshold) && candidates.containsKey(key);
+    }
+
+    /**
+     * @param key
+     * @return the estimated count of the key
+     */
+    public long estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Returns the current top k keys, the most requested first.
+     *
+     * @return List<HotKey>
+     */
+    public List<HotKey> topK() {
+        PriorityQueue<HotKey> heap = topKHeap();
+        List<HotKey> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(HotKey::getEstimatedCount).reversed());
+        return top;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    private PriorityQueue<HotKey> topKHeap() {
+        PriorityQueue<HotKey> heap = new PriorityQueue<>(k + 1, Comparator.comparingLong(HotKey::getEstimatedCount));
+        for (String key : candidates.keySet()) {
+            long estimate = sketch.estimate(key);
+            if (estimate == 0) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(new HotKey(key, estimate));
+            } else if (estimate > heap.peek().getEstimatedCount()) {
+                heap.poll();
+                heap.add(new HotKey(key, estimate));
+            }
+        }
+        return heap;
+    }
+
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            PriorityQueue<HotKey> heap = topKHeap();
+            if (heap.size() == k) {
+                admissionThreshold = heap.peek().getEstimatedCount();
+            }
+            Set<String> top = new HashSet<>(heap.size() * 2);
+            for (HotKey hotKey : heap) {
+                top.add(hotKey.getKey());
+            }
+            candidates.keySet().retainAll(top);
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private void maybeDecay() {
+        long next = nextDecay.get();
+        if (System.nanoTime() - next < 0 || !nextDecay.compareAndSet(next, System.nanoTime() + decayPeriodNanos)) {
+            return;
+        }
+        sketch.decay();
+        admissionThreshold = admissionThreshold >>> 1;
+    }
+}
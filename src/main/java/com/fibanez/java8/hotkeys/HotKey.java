@@ -0,0 +1,29 @@
+package com.fibanez.java8.hotkeys;
+
+/**
+ * A key with its estimated count.
+ *
+ * @author fibanez
+ */
+public class HotKey {
+    private final String key;
+    private final long estimatedCount;
+
+    public HotKey(String key, long estimatedCount) {
+        this.key = key;
+        this.estimatedCount = estimatedCount;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getEstimatedCount() {
+        return estimatedCount;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + estimatedCount;
+    }
+}
@@ -0,0 +1,31 @@
+package com.fibanez.java8.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of one call to the assets service.
+ *
+ * @author fibanez
+ */
+@Name("com.fibanez.java8.AssetCall")
+@Label("Asset Call")
+@Category("Article Enricher")
+@Description("Call to the assets service for an image or a video")
+@Threshold("10 ms")
+@StackTrace(false)
+class AssetCallEvent extends jdk.jfr.Event {
+
+    @Label("Asset Type")
+    String assetType;
+
+    @Label("Asset Id")
+    String assetId;
+
+    @Label("Outcome")
+    String outcome;
+}
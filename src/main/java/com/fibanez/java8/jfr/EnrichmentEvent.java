@@ -0,0 +1,42 @@
+package com.fibanez.java8.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event of one enrichArticleWithId call, from the call until the RichArticle future
+ * is completed.
+ *
+ * @author fibanez
+ */
+@Name("com.fibanez.java8.Enrichment")
+@Label("Article Enrichment")
+@Category("Article Enricher")
+@Description("Enrichment of an article with its hero image and videos")
+@Threshold("20 ms")
+@StackTrace(false)
+class EnrichmentEvent extends jdk.jfr.Event {
+
+    @Label("Article Id")
+    String articleId;
+
+    @Label("Video Count")
+    @Description("Videos of the article, requested whether or not they could be fetched")
+    int videoCount;
+
+    @Label("Article Fetch")
+    @Timespan(Timespan.NANOSECONDS)
+    long articleDuration;
+
+    @Label("Assets Fetch")
+    @Timespan(Timespan.NANOSECONDS)
+    long assetsDuration;
+
+    @Label("Outcome")
+    String outcome;
+}
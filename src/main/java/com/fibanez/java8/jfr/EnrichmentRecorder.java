@@ -0,0 +1,164 @@
+package com.fibanez.java8.jfr;
+
+import com.fibanez.java8.models.RichArticle;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits JDK Flight Recorder events for the enrichments and the asset calls, so that a slow request
+ * can be seen next to the GC, lock and thread pool events of the same recording.
+ *
+ * When no recording has the events enabled, or Flight Recorder is not available in the JVM, nothing
+ * is allocated. Otherwise one out of sampleEvery enrichments is recorded, and only the ones longer
+ * than the threshold of the recording (20 ms and 10 ms by default) are committed.
+ *
+ * This class does not link to jdk.jfr: the events are in JfrEvents, loaded by reflection, so the
+ * enricher also builds and runs on JDK 8 builds without Flight Recorder (before 8u262), where the
+ * event classes are left out by the no-jfr profile.
+ *
+ * @author fibanez
+ */
+public class EnrichmentRecorder {
+
+    private static final String JFR_EVENTS_CLASS = "com.fibanez.java8.jfr.JfrEvents";
+
+    private static final Events EVENTS = loadEvents();
+
+    private static final EnrichmentRecorder DISABLED = new EnrichmentRecorder(0);
+
+    private final int sampleEvery;
+
+    private EnrichmentRecorder(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * Returns a recorder which emits no events.
+     *
+     * @return EnrichmentRecorder
+     */
+    public static EnrichmentRecorder disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns a recorder which emits Flight Recorder events, or a disabled one if the JVM has no
+     * Flight Recorder.
+     *
+     * @param sampleEvery records one out of sampleEvery enrichments and asset calls, 1 records all
+     * @return EnrichmentRecorder
+     */
+    public static EnrichmentRecorder flightRecorder(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+        return EVENTS != null ? new EnrichmentRecorder(sampleEvery) : DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return sampleEvery > 0;
+    }
+
+    /**
+     * Starts the event of an enrichment.
+     *
+     * @param articleId
+     * @return Enrichment, to be ended when the RichArticle future completes
+     */
+    public Enrichment beginEnrichment(String articleId) {
+        if (!isEnabled() || !EVENTS.isEnrichmentEnabled() || !sampled()) {
+            return Enrichment.NONE;
+        }
+        return EVENTS.beginEnrichment(articleId);
+    }
+
+    /**
+     * Records an event for the asset call when the future completes.
+     *
+     * @param assetType image or video
+     * @param assetId
+     * @param assetFuture
+     * @param <T>
+     * @return the assetFuture
+     */
+    public <T> CompletableFuture<T> recordAssetCall(String assetType, String assetId, CompletableFuture<T> assetFuture) {
+        if (!isEnabled() || !EVENTS.isAssetCallEnabled() || !sampled()) {
+            return assetFuture;
+        }
+        AssetCall assetCall = EVENTS.beginAssetCall(assetType, assetId);
+        assetFuture.whenComplete((asset, e) -> assetCall.end(e));
+        return assetFuture;
+    }
+
+    private boolean sampled() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    static String outcome(Throwable e) {
+        if (e == null) {
+            return "SUCCESS";
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof CancellationException ? "CANCELLED" : "FAILED";
+    }
+
+    /**
+     * @return the Flight Recorder events, or null if the JVM has no Flight Recorder or they were not built
+     */
+    private static Events loadEvents() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return (Events) Class.forName(JFR_EVENTS_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stages of an enrichment which is being recorded.
+     */
+    public interface Enrichment {
+
+        Enrichment NONE = new Enrichment() {
+            @Override
+            public void articleFetched(int videosRequested) {
+            }
+
+            @Override
+            public void end(RichArticle richArticle, Throwable e) {
+            }
+        };
+
+        /**
+         * @param videosRequested number of videos of the article, whether or not they can be fetched
+         */
+        void articleFetched(int videosRequested);
+
+        void end(RichArticle richArticle, Throwable e);
+    }
+
+    /**
+     * Event of an asset call which is being recorded.
+     */
+    interface AssetCall {
+
+        void end(Throwable e);
+    }
+
+    /**
+     * Factory of the events, implemented by JfrEvents.
+     */
+    interface Events {
+
+        boolean isEnrichmentEnabled();
+
+        boolean isAssetCallEnabled();
+
+        Enrichment beginEnrichment(String articleId);
+
+        AssetCall beginAssetCall(String assetType, String assetId);
+    }
+}
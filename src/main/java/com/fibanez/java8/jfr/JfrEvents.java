@@ -0,0 +1,95 @@
+package com.fibanez.java8.jfr;
+
+import com.fibanez.java8.models.RichArticle;
+import jdk.jfr.EventType;
+
+/**
+ * With the event classes, the only classes which use jdk.jfr. Instantiated by reflection once
+ * EnrichmentRecorder knows Flight Recorder exists, nothing else refers to them.
+ *
+ * @author fibanez
+ */
+class JfrEvents implements EnrichmentRecorder.Events {
+
+    private static final EventType ENRICHMENT_TYPE = EventType.getEventType(EnrichmentEvent.class);
+
+    private static final EventType ASSET_CALL_TYPE = EventType.getEventType(AssetCallEvent.class);
+
+    @Override
+    public boolean isEnrichmentEnabled() {
+        return ENRICHMENT_TYPE.isEnabled();
+    }
+
+    @Override
+    public boolean isAssetCallEnabled() {
+        return ASSET_CALL_TYPE.isEnabled();
+    }
+
+    @Override
+    public EnrichmentRecorder.Enrichment beginEnrichment(String articleId) {
+        return new JfrEnrichment(articleId);
+    }
+
+    @Override
+    public EnrichmentRecorder.AssetCall beginAssetCall(String assetType, String assetId) {
+        return new JfrAssetCall(assetType, assetId);
+    }
+
+    static class JfrEnrichment implements EnrichmentRecorder.Enrichment {
+
+        private final EnrichmentEvent event = new EnrichmentEvent();
+        private final long startedAt = System.nanoTime();
+        private volatile long articleFetchedAt;
+        private volatile int videosRequested;
+
+        JfrEnrichment(String articleId) {
+            event.articleId = articleId;
+            event.begin();
+        }
+
+        @Override
+        public void articleFetched(int videosRequested) {
+            this.videosRequested = videosRequested;
+            articleFetchedAt = System.nanoTime();
+        }
+
+        @Override
+        public void end(RichArticle richArticle, Throwable e) {
+            event.end();
+            if (!event.shouldCommit()) {
+                return;
+            }
+            long endedAt = System.nanoTime();
+            long fetchedAt = articleFetchedAt;
+            if (fetchedAt == 0) {
+                event.articleDuration = endedAt - startedAt;
+            } else {
+                event.articleDuration = fetchedAt - startedAt;
+                event.assetsDuration = endedAt - fetchedAt;
+            }
+            event.videoCount = videosRequested;
+            event.outcome = EnrichmentRecorder.outcome(e);
+            event.commit();
+        }
+    }
+
+    static class JfrAssetCall implements EnrichmentRecorder.AssetCall {
+
+        private final AssetCallEvent event = new AssetCallEvent();
+
+        JfrAssetCall(String assetType, String assetId) {
+            event.assetType = assetType;
+            event.assetId = assetId;
+            event.begin();
+        }
+
+        @Override
+        public void end(Throwable e) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.outcome = EnrichmentRecorder.outcome(e);
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.fibanez.java8.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull parser of UTF-8 JSON, reading straight from the bytes of a response.
+ *
+ * Strings without escapes are decoded in one go from the bytes, with no intermediate buffer. Values
+ * which are not needed can be skipped with skipValue(). Commas and colons are consumed by hasNext()
+ * and nextName(), so a reader loop looks like:
+ *
+ *  reader.beginObject();
+ *  while (reader.hasNext()) {
+ *      String name = reader.nextName();
+ *      ...
+ *  }
+ *  reader.endObject();
+ *
+ * @author fibanez
+ */
+public class JsonReader {
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public JsonReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    public void beginObject() {
+        expect('{');
+    }
+
+    public void endObject() {
+        expect('}');
+    }
+
+    public void beginArray() {
+        expect('[');
+    }
+
+    public void endArray() {
+        expect(']');
+    }
+
+    /**
+     * Skips the comma before the next element, if any.
+     *
+     * @return true if the current object or array has another element
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (pos < end && data[pos] == ',') {
+            pos++;
+            skipWhitespace();
+        }
+        if (pos >= end) {
+            throw error("Unexpected end of input");
+        }
+        return data[pos] != '}' && data[pos] != ']';
+    }
+
+    /**
+     * @return the name of the next member of the object, the colon is consumed
+     */
+    public String nextName() {
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * @return the next string value, or null if the value is null
+     */
+    public String nextString() {
+        skipWhitespace();
+        if (peekLiteral("null")) {
+            pos += 4;
+            return null;
+        }
+        expect('"');
+        int start = pos;
+        while (pos < end) {
+            byte b = data[pos];
+            if (b == '"') {
+                String value = new String(data, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return value;
+            }
+            if (b == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Consumes the next value if it is null.
+     *
+     * @return true if the next value was null
+     */
+    public boolean nextNull() {
+        skipWhitespace();
+        if (peekLiteral("null")) {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the next value, whatever its type.
+     */
+    public void skipValue() {
+        skipWhitespace();
+        if (pos >= end) {
+            throw error("Unexpected end of input");
+        }
+        byte b = data[pos];
+        if (b == '"') {
+            nextString();
+        } else if (b == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (b == '[') {
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        } else {
+            int start = pos;
+            while (pos < end && data[pos] != ',' && data[pos] != '}' && data[pos] != ']'
+                    && !isWhitespace(data[pos])) {
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Unexpected character");
+            }
+        }
+    }
+
+    private String readEscapedString(int start) {
+        StringBuilder builder = new StringBuilder(pos - start + 16);
+        builder.append(new String(data, start, pos - start, StandardCharsets.UTF_8));
+        int chunkStart = pos;
+        while (pos < end) {
+            byte b = data[pos];
+            if (b == '"') {
+                builder.append(new String(data, chunkStart, pos - chunkStart, StandardCharsets.UTF_8));
+                pos++;
+                return builder.toString();
+            }
+            if (b != '\\') {
+                pos++;
+                continue;
+            }
+            builder.append(new String(data, chunkStart, pos - chunkStart, StandardCharsets.UTF_8));
+            if (++pos >= end) {
+                break;
+            }
+            byte escaped = data[pos++];
+            switch (escaped) {
+                case '"': builder.append('"'); break;
+                case '\\': builder.append('\\'); break;
+                case '/': builder.append('/'); break;
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > end) {
+                        throw error("Invalid unicode escape");
+                    }
+                    builder.append((char) Integer.parseInt(new String(data, pos, 4, StandardCharsets.US_ASCII), 16));
+                    pos += 4;
+                    break;
+                default:
+                    throw error("Invalid escape");
+            }
+            chunkStart = pos;
+        }
+        throw error("Unterminated string");
+    }
+
+    private boolean peekLiteral(String literal) {
+        if (pos + literal.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (pos >= end || data[pos] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(data[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
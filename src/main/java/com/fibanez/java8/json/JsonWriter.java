@@ -0,0 +1,220 @@
+package com.fibanez.java8.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes UTF-8 JSON into a byte array which is reused from one document to the next.
+ *
+ * Strings are escaped and encoded char by char straight into the array, no intermediate String or
+ * char array is created. Without an OutputStream the array grows to hold the whole document, which
+ * toByteBuffer() then exposes without copying. With an OutputStream the array is flushed to it
+ * whenever it fills up.
+ *
+ * Structure is written by the caller, names and punctuation are usually pre-encoded constants:
+ *
+ *  writer.writeRaw(ID_MEMBER);   // {"id":
+ *  writer.writeString(id);
+ *  writer.writeByte('}');
+ *
+ * @author fibanez
+ */
+public final class JsonWriter {
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    /**
+     * For each ASCII char, 0 if written as is, else the char following the backslash of its escape
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    private byte[] buffer;
+    private int count;
+    private OutputStream out;
+
+    public JsonWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * Starts a new document kept in memory.
+     */
+    public JsonWriter reset() {
+        count = 0;
+        out = null;
+        return this;
+    }
+
+    /**
+     * Starts a new document streamed to the given output. Write failures are thrown as UncheckedIOException.
+     */
+    public JsonWriter reset(OutputStream out) {
+        count = 0;
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * @param bytes already valid JSON, such as a pre-encoded member name
+     */
+    public void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        if (bytes.length > buffer.length) {
+            writeOut(bytes);
+            return;
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /**
+     * @param c an ASCII char, such as a brace or a comma
+     */
+    public void writeByte(char c) {
+        if (count == buffer.length) {
+            ensureCapacity(1);
+        }
+        buffer[count++] = (byte) c;
+    }
+
+    public void writeNull() {
+        writeRaw(NULL);
+    }
+
+    /**
+     * Writes the string quoted and escaped, or null.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.length - count < 6) {
+                ensureCapacity(6);
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    buffer[count++] = (byte) c;
+                } else {
+                    writeEscape(c, escape);
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired, replaced as String.getBytes does
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        writeByte('"');
+    }
+
+    /**
+     * @return bytes written since the last reset, or since the last flush when streaming
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return a view of the document, valid until the writer is used again
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count);
+    }
+
+    /**
+     * @return a copy of the document
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Writes what is buffered to the output stream.
+     */
+    public void flush() {
+        if (out != null && count > 0) {
+            try {
+                out.write(buffer, 0, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * @return the capacity of the reused array
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private void writeEscape(char c, byte escape) {
+        buffer[count++] = '\\';
+        buffer[count++] = escape;
+        if (escape == 'u') {
+            buffer[count++] = '0';
+            buffer[count++] = '0';
+            buffer[count++] = HEX[c >> 4];
+            buffer[count++] = HEX[c & 0xf];
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (count + needed <= buffer.length) {
+            return;
+        }
+        if (out != null) {
+            flush();
+        } else {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + needed));
+        }
+    }
+
+    private void writeOut(byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
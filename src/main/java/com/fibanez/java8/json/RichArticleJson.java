@@ -0,0 +1,155 @@
+package com.fibanez.java8.json;
+
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Serializer of RichArticle, Image and Video to JSON:
+ *
+ *  {"id":"...","name":"...","heroImage":{"id":"...","altText":"..."},"videos":[{"id":"...","caption":"..."}]}
+ *
+ * Member names are encoded once, and each thread reuses its own JsonWriter, so serializing an article
+ * allocates nothing but what the caller keeps.
+ *
+ * @author fibanez
+ */
+public final class RichArticleJson {
+
+    /**
+     * Buffers grown above this size by a large document are not kept by the thread
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<JsonWriter> WRITERS = ThreadLocal.withInitial(() -> new JsonWriter(4096));
+
+    private static final byte[] ID = JsonWriter.ascii("{\"id\":");
+    private static final byte[] NAME = JsonWriter.ascii(",\"name\":");
+    private static final byte[] HERO_IMAGE = JsonWriter.ascii(",\"heroImage\":");
+    private static final byte[] VIDEOS = JsonWriter.ascii(",\"videos\":");
+    private static final byte[] ALT_TEXT = JsonWriter.ascii(",\"altText\":");
+    private static final byte[] CAPTION = JsonWriter.ascii(",\"caption\":");
+
+    private RichArticleJson() {
+    }
+
+    /**
+     * @return the JSON of the article in the thread's reusable buffer, valid until the thread serializes again
+     */
+    public static ByteBuffer toJson(RichArticle article) {
+        JsonWriter writer = writer().reset();
+        write(article, writer);
+        return release(writer);
+    }
+
+    /**
+     * @param articles written as an array, a null article is written as null
+     * @return the JSON in the thread's reusable buffer, valid until the thread serializes again
+     */
+    public static ByteBuffer toJson(List<RichArticle> articles) {
+        JsonWriter writer = writer().reset();
+        write(articles, writer);
+        return release(writer);
+    }
+
+    /**
+     * Streams the JSON of the article, through the thread's reusable buffer.
+     */
+    public static void write(RichArticle article, OutputStream out) throws IOException {
+        JsonWriter writer = writer().reset(out);
+        try {
+            write(article, writer);
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.reset();
+        }
+    }
+
+    public static void write(List<RichArticle> articles, JsonWriter writer) {
+        writer.writeByte('[');
+        for (int i = 0; i < articles.size(); i++) {
+            if (i > 0) {
+                writer.writeByte(',');
+            }
+            write(articles.get(i), writer);
+        }
+        writer.writeByte(']');
+    }
+
+    public static void write(RichArticle article, JsonWriter writer) {
+        if (article == null) {
+            writer.writeNull();
+            return;
+        }
+        writer.writeRaw(ID);
+        writer.writeString(article.getId());
+        writer.writeRaw(NAME);
+        writer.writeString(article.getName());
+        writer.writeRaw(HERO_IMAGE);
+        write(article.getHeroImage(), writer);
+        writer.writeRaw(VIDEOS);
+        if (article.getVideos() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeByte('[');
+            boolean first = true;
+            for (Video video : article.getVideos()) {
+                if (!first) {
+                    writer.writeByte(',');
+                }
+                first = false;
+                write(video, writer);
+            }
+            writer.writeByte(']');
+        }
+        writer.writeByte('}');
+    }
+
+    public static void write(Image image, JsonWriter writer) {
+        if (image == null) {
+            writer.writeNull();
+            return;
+        }
+        writer.writeRaw(ID);
+        writer.writeString(image.getId());
+        writer.writeRaw(ALT_TEXT);
+        writer.writeString(image.getAltText());
+        writer.writeByte('}');
+    }
+
+    public static void write(Video video, JsonWriter writer) {
+        if (video == null) {
+            writer.writeNull();
+            return;
+        }
+        writer.writeRaw(ID);
+        writer.writeString(video.getId());
+        writer.writeRaw(CAPTION);
+        writer.writeString(video.getCaption());
+        writer.writeByte('}');
+    }
+
+    private static JsonWriter writer() {
+        return WRITERS.get();
+    }
+
+    /**
+     * Lets a thread which serialized an unusually large document drop its buffer once the result is used.
+     * The result stays valid, as the next call gets a new buffer.
+     */
+    private static ByteBuffer release(JsonWriter writer) {
+        ByteBuffer json = writer.toByteBuffer();
+        if (writer.capacity() > MAX_RETAINED_CAPACITY) {
+            WRITERS.remove();
+        }
+        return json;
+    }
+}
@@ -1,12 +1,14 @@
 package com.fibanez.java8.models;
 
+import com.fibanez.java8.utils.StringUtils;
+
 public class Image {
     private final String id;
     private final String altText;
 
     public Image(String id, String altText) {
-        this.id = id;
-        this.altText = altText;
+        this.id = StringUtils.canonical(id);
+        this.altText = StringUtils.canonical(altText);
     }
 
     public String getId() {
@@ -1,7 +1,14 @@
 package com.fibanez.java8.models;
 
+import com.fibanez.java8.utils.ArrayBackedList;
+import com.fibanez.java8.utils.StringUtils;
+
 import java.util.Collection;
 
+/**
+ * Ids are canonical strings and the videos are kept in an immutable list of their exact size, since
+ * rich articles are cached. Null videos stay null.
+ */
 public class RichArticle {
 
     private final String id;
@@ -10,10 +17,10 @@ public class RichArticle {
     private final Collection<Video> videos;
 
     public RichArticle(String id, String name, Image heroImage, Collection<Video> videos) {
-        this.id = id;
-        this.name = name;
+        this.id = StringUtils.canonical(id);
+        this.name = StringUtils.canonical(name);
         this.heroImage = heroImage;
-        this.videos = videos;
+        this.videos = videos == null ? null : ArrayBackedList.copyOf(videos);
     }
 
     public String getId() {
@@ -1,12 +1,14 @@
 package com.fibanez.java8.models;
 
+import com.fibanez.java8.utils.StringUtils;
+
 public class Video {
     private final String id;
     private final String caption;
 
     public Video(String id, String caption) {
-        this.id = id;
-        this.caption = caption;
+        this.id = StringUtils.canonical(id);
+        this.caption = StringUtils.canonical(caption);
     }
 
     public String getId() {
@@ -0,0 +1,150 @@
+package com.fibanez.java8.monitoring;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gauges and health check of an InstrumentedExecutor, which tell apart a slow downstream service
+ * (threads blocked in future.get()) from a saturated pool (tasks waiting to run).
+ *
+ * checkHealth() compares the gauges with the SaturationThresholds so that a load balancer can stop
+ * sending traffic before latency collapses. An executor which hands tasks off directly to a thread,
+ * as InstrumentedExecutor.newCachedThreadPool() does, never queues them, so the queued tasks and
+ * recent wait are not checked for it: its saturation shows in the active and blocked threads.
+ *
+ * @author fibanez
+ */
+public class ExecutorMonitor implements ExecutorMonitorMXBean {
+
+    private final InstrumentedExecutor executor;
+
+    private volatile SaturationThresholds thresholds;
+
+    public ExecutorMonitor(InstrumentedExecutor executor, SaturationThresholds thresholds) {
+        this.executor = executor;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Registers this monitor in the platform MBean server.
+     *
+     * @param name i.e. "com.fibanez.java8:type=ExecutorMonitor,name=articleEnricher"
+     * @return the registered ObjectName
+     * @throws JMException
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void setThresholds(SaturationThresholds thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    public SaturationThresholds getThresholds() {
+        return thresholds;
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        return executor.getLargestPoolSize();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return executor.getCompletedTaskCount();
+    }
+
+    @Override
+    public long getSubmittedTasks() {
+        return executor.getSubmittedTasks();
+    }
+
+    @Override
+    public double getAverageWaitMillis() {
+        return average(executor.getTotalWaitNanos());
+    }
+
+    @Override
+    public double getAverageRunMillis() {
+        return average(executor.getTotalRunNanos());
+    }
+
+    @Override
+    public double getRecentWaitMillis() {
+        return toMillis(executor.getRecentWaitNanos());
+    }
+
+    /**
+     * Threads of this executor waiting on a client future in Futures.toCompletableFuture.
+     */
+    @Override
+    public int getThreadsBlockedInFutureGet() {
+        return executor.getBlockedThreadCounter().get();
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return !checkHealth().isEmpty();
+    }
+
+    @Override
+    public String getHealthReport() {
+        List<String> problems = checkHealth();
+        return problems.isEmpty() ? "OK" : String.join("; ", problems);
+    }
+
+    /**
+     * Compares the gauges with the thresholds.
+     *
+     * @return the thresholds exceeded, empty if the executor is healthy
+     */
+    public List<String> checkHealth() {
+        SaturationThresholds limits = thresholds;
+        List<String> problems = new ArrayList<>();
+        check(problems, "active threads", getActiveThreads(), limits.getMaxActiveThreads());
+        check(problems, "threads blocked in future.get()", getThreadsBlockedInFutureGet(), limits.getMaxBlockedThreads());
+        if (!executor.isDirectHandoff()) {
+            check(problems, "queued tasks", getQueuedTasks(), limits.getMaxQueuedTasks());
+            check(problems, "recent wait millis", (long) getRecentWaitMillis(), limits.getMaxRecentWaitMillis());
+        }
+        return problems;
+    }
+
+    private void check(List<String> problems, String gauge, long value, long limit) {
+        if (limit > 0 && value > limit) {
+            problems.add(gauge + " " + value + " > " + limit);
+        }
+    }
+
+    private double average(long totalNanos) {
+        long tasks = executor.getTimedTasks();
+        return tasks == 0 ? 0 : toMillis(totalNanos) / tasks;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
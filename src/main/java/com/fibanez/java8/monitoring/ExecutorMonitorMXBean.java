@@ -0,0 +1,33 @@
+package com.fibanez.java8.monitoring;
+
+/**
+ * JMX view of the enricher executor.
+ *
+ * @author fibanez
+ */
+public interface ExecutorMonitorMXBean {
+
+    int getActiveThreads();
+
+    int getQueuedTasks();
+
+    int getPoolSize();
+
+    int getLargestPoolSize();
+
+    long getCompletedTasks();
+
+    long getSubmittedTasks();
+
+    double getAverageWaitMillis();
+
+    double getAverageRunMillis();
+
+    double getRecentWaitMillis();
+
+    int getThreadsBlockedInFutureGet();
+
+    boolean isSaturated();
+
+    String getHealthReport();
+}
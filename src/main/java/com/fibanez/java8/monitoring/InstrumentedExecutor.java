@@ -0,0 +1,160 @@
+package com.fibanez.java8.monitoring;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ThreadPoolExecutor which measures how long tasks wait in the queue and how long they run.
+ *
+ * Besides the totals, a moving average of the wait time of the latest tasks is kept, which is what
+ * tells whether the pool is falling behind right now. The average decays while no task starts, so a
+ * burst which is over does not keep the pool reported as slow.
+ *
+ * The threads of this executor blocked on a client future are counted in getBlockedThreadCounter(),
+ * which is passed to Futures.toCompletableFuture.
+ *
+ * @author fibanez
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    private static final double RECENT_WEIGHT = 0.1;
+
+    private static final long RECENT_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder submitted = new LongAdder();
+    private final AtomicLong recentWaitNanos = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile long recentWaitUpdatedAt = System.nanoTime();
+    private final AtomicInteger blockedThreads = new AtomicInteger();
+
+    private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+    public InstrumentedExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                BlockingQueue<Runnable> workQueue) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+    }
+
+    /**
+     * Returns an executor with the same sizing as Executors.newCachedThreadPool(). Tasks are handed
+     * off directly to a thread, so they never queue and the queue checks do not apply.
+     *
+     * @return InstrumentedExecutor
+     */
+    public static InstrumentedExecutor newCachedThreadPool() {
+        return new InstrumentedExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+        super.execute(new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long now = System.nanoTime();
+        if (r instanceof TimedTask) {
+            long waited = now - ((TimedTask) r).submittedAt;
+            waitNanos.add(waited);
+            recentWaitNanos.getAndUpdate(bits -> Double.doubleToLongBits(
+                    decayed(Double.longBitsToDouble(bits), now) * (1 - RECENT_WEIGHT) + waited * RECENT_WEIGHT));
+            recentWaitUpdatedAt = now;
+        }
+        startedAt.set(now);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        Long started = startedAt.get();
+        if (started != null) {
+            runNanos.add(System.nanoTime() - started);
+            tasks.increment();
+            startedAt.remove();
+        }
+        super.afterExecute(r, t);
+    }
+
+    /**
+     * @return total time the executed tasks have waited to be run
+     */
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * @return total time the executed tasks have been running
+     */
+    public long getTotalRunNanos() {
+        return runNanos.sum();
+    }
+
+    /**
+     * @return tasks finished, which count for the totals
+     */
+    public long getTimedTasks() {
+        return tasks.sum();
+    }
+
+    /**
+     * @return tasks handed to this executor, each one is a thread hop
+     */
+    public long getSubmittedTasks() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return exponential moving average of the wait time of the latest tasks, halved for every
+     * second without a task starting
+     */
+    public long getRecentWaitNanos() {
+        return getRecentWaitNanos(System.nanoTime());
+    }
+
+    /**
+     * @param now as of which the average is decayed, in System.nanoTime() terms
+     */
+    long getRecentWaitNanos(long now) {
+        return (long) decayed(Double.longBitsToDouble(recentWaitNanos.get()), now);
+    }
+
+    /**
+     * @return counter of the threads of this executor blocked on a future, for Futures.toCompletableFuture
+     */
+    public AtomicInteger getBlockedThreadCounter() {
+        return blockedThreads;
+    }
+
+    /**
+     * @return true if tasks are handed off directly to a thread, never waiting in the queue
+     */
+    public boolean isDirectHandoff() {
+        return getQueue() instanceof SynchronousQueue;
+    }
+
+    private double decayed(double average, long now) {
+        long idle = now - recentWaitUpdatedAt;
+        return idle <= 0 ? average : average * Math.pow(0.5, (double) idle / RECENT_HALF_LIFE_NANOS);
+    }
+
+    private static class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long submittedAt = System.nanoTime();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
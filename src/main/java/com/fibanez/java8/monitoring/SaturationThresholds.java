@@ -0,0 +1,44 @@
+package com.fibanez.java8.monitoring;
+
+/**
+ * Limits above which an executor is reported as saturated. A zero or negative limit is not checked.
+ *
+ * @author fibanez
+ */
+public class SaturationThresholds {
+
+    private static final SaturationThresholds DEFAULTS = new SaturationThresholds(500, 1000, 400, 100);
+
+    private final int maxActiveThreads;
+    private final int maxQueuedTasks;
+    private final int maxBlockedThreads;
+    private final long maxRecentWaitMillis;
+
+    public SaturationThresholds(int maxActiveThreads, int maxQueuedTasks, int maxBlockedThreads,
+                                long maxRecentWaitMillis) {
+        this.maxActiveThreads = maxActiveThreads;
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.maxBlockedThreads = maxBlockedThreads;
+        this.maxRecentWaitMillis = maxRecentWaitMillis;
+    }
+
+    public static SaturationThresholds defaults() {
+        return DEFAULTS;
+    }
+
+    public int getMaxActiveThreads() {
+        return maxActiveThreads;
+    }
+
+    public int getMaxQueuedTasks() {
+        return maxQueuedTasks;
+    }
+
+    public int getMaxBlockedThreads() {
+        return maxBlockedThreads;
+    }
+
+    public long getMaxRecentWaitMillis() {
+        return maxRecentWaitMillis;
+    }
+}
@@ -0,0 +1,132 @@
+package com.fibanez.java8.retry;
+
+import com.fibanez.java8.utils.Futures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous calls under a RetryPolicy and a RetryBudget.
+ *
+ * The wait between attempts is scheduled on a timer, no thread sleeps while a retry is pending.
+ * Cancelling the returned future cancels the current attempt and any pending retry.
+ *
+ * @author fibanez
+ */
+public class Retrier {
+
+    private static final Retrier NO_RETRIES = new Retrier(RetryPolicy.none(), RetryBudget.unlimited(), null);
+
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder retriesAttempted = new LongAdder();
+    private final LongAdder retriesSuppressed = new LongAdder();
+
+    /**
+     * @param policy
+     * @param budget shared by every call made through this retrier
+     * @param scheduler timer for the delayed attempts, only needed if the policy makes more than one
+     */
+    public Retrier(RetryPolicy policy, RetryBudget budget, ScheduledExecutorService scheduler) {
+        if (policy.getMaxAttempts() > 1 && scheduler == null) {
+            throw new IllegalArgumentException("A scheduler is required to retry");
+        }
+        this.policy = policy;
+        this.budget = budget;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns a retrier which makes a single attempt per call.
+     *
+     * @return Retrier
+     */
+    public static Retrier noRetries() {
+        return NO_RETRIES;
+    }
+
+    /**
+     * Calls the supplier until its future succeeds, the policy gives up or the budget is spent.
+     *
+     * @param call supplies a new future for every attempt
+     * @param <T>
+     * @return CompletableFuture<T> with the first successful value or the last failure
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (policy.getMaxAttempts() == 1) {
+            return call.get();
+        }
+        budget.deposit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(call, result, 1);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result, int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        Futures.propagateCancellation(result, future);
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else if (result.isDone()) {
+                return;
+            } else if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(e)) {
+                result.completeExceptionally(e);
+            } else if (!budget.tryWithdraw()) {
+                retriesSuppressed.increment();
+                result.completeExceptionally(e);
+            } else {
+                ScheduledFuture<?> retry;
+                try {
+                    retry = scheduler.schedule(() -> attempt(call, result, attempt + 1),
+                            policy.delayMillis(attempt), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rejected) {
+                    // The scheduler is shut down, the retry cannot happen
+                    e.addSuppressed(rejected);
+                    result.completeExceptionally(e);
+                    return;
+                }
+                retriesAttempted.increment();
+                Futures.propagateCancellation(result, retry);
+            }
+        });
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return retries scheduled since this retrier was created
+     */
+    public long getRetriesAttempted() {
+        return retriesAttempted.sum();
+    }
+
+    /**
+     * @return retries which the policy allowed but the budget refused
+     */
+    public long getRetriesSuppressed() {
+        return retriesSuppressed.sum();
+    }
+}
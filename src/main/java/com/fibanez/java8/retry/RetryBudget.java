@@ -0,0 +1,83 @@
+package com.fibanez.java8.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket which caps retries to a percentage of the total traffic.
+ *
+ * Every call deposits percentCanRetry / 100 tokens and every retry withdraws one, so once the
+ * reserve is spent no more than percentCanRetry retries are made per hundred calls. This prevents
+ * retry storms when a downstream service is failing for everybody. Tokens are kept in thousandths
+ * and updated without locks.
+ *
+ * @author fibanez
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    /**
+     * @param percentCanRetry percentage of the calls which can be retried, from 0 to 100
+     * @param maxTokens retries which can be made in a burst, the bucket starts full
+     */
+    public RetryBudget(double percentCanRetry, int maxTokens) {
+        if (percentCanRetry < 0 || percentCanRetry > 100) {
+            throw new IllegalArgumentException("percentCanRetry must be between 0 and 100");
+        }
+        if (maxTokens < 0) {
+            throw new IllegalArgumentException("maxTokens must not be negative");
+        }
+        this.depositPerCall = Math.round(percentCanRetry / 100 * SCALE);
+        this.maxBalance = maxTokens * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Returns a budget which never suppresses a retry.
+     *
+     * @return RetryBudget
+     */
+    public static RetryBudget unlimited() {
+        return new RetryBudget(100, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records a call, which earns credit for future retries.
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerCall)));
+    }
+
+    /**
+     * Takes a token for a retry.
+     *
+     * @return true if the retry is allowed by the budget
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * @return the number of retries which can be made right now
+     */
+    public long availableRetries() {
+        return balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,126 @@
+package com.fibanez.java8.retry;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.clients.http.HttpStatusException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Defines how many times a call is attempted and how long to wait between attempts.
+ *
+ * The delay grows exponentially from baseDelayMillis up to maxDelayMillis and a random value between
+ * zero and that delay is taken (full jitter), so that clients failing at the same time do not retry
+ * at the same time.
+ *
+ * Only the failures accepted by the retryable predicate are retried, by default the ones which may
+ * not happen again: a 4xx status or a missing article is failed at once.
+ *
+ * @author fibanez
+ */
+public class RetryPolicy {
+
+    private static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Predicate<Throwable> retryable;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this(maxAttempts, baseDelayMillis, maxDelayMillis, RetryPolicy::isTransient);
+    }
+
+    /**
+     * @param maxAttempts
+     * @param baseDelayMillis
+     * @param maxDelayMillis
+     * @param retryable tells which failures are retried, a cancellation never is
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Predicate<Throwable> retryable) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("delays must satisfy 0 <= baseDelayMillis <= maxDelayMillis");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryable = retryable;
+    }
+
+    /**
+     * Returns a policy which makes a single attempt.
+     *
+     * @return RetryPolicy
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Returns the jittered delay before the next attempt.
+     *
+     * @param failedAttempts number of attempts already made, starting at 1
+     * @return delay in milliseconds
+     */
+    public long delayMillis(int failedAttempts) {
+        int shift = Math.min(failedAttempts - 1, 30);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Cancellations are never retried, the other failures are if the retryable predicate accepts
+     * them. The whole cause chain is looked at, as a cancelled blocking call surfaces wrapped, e.g.
+     * RuntimeException(CancellationException).
+     *
+     * @param e
+     * @return true if the failure can be retried
+     */
+    public boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return false;
+            }
+        }
+        return retryable.test(e);
+    }
+
+    /**
+     * The default retryable predicate: every failure but a 4xx status, other than 408 and 429, and a
+     * missing article, wherever they are in the cause chain.
+     *
+     * @param e
+     * @return true if the failure may not happen again
+     */
+    public static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException) {
+                int statusCode = ((HttpStatusException) cause).getStatusCode();
+                return statusCode < 400 || statusCode >= 500 || statusCode == 408 || statusCode == 429;
+            }
+            if (ArticleEnricherImpl.NO_ARTICLE_FOUND.equals(cause.getMessage())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
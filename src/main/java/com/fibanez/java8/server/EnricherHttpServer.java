@@ -0,0 +1,378 @@
+package com.fibanez.java8.server;
+
+import com.fibanez.java8.ArticleEnricher;
+import com.fibanez.java8.json.RichArticleJson;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.utils.Futures;
+import com.fibanez.java8.utils.StringUtils;
+
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded HTTP/1.1 front-end of an ArticleEnricher, on a few NIO event loops.
+ *
+ *  GET /articles/{id}           the rich article
+ *  GET /articles?ids=id1,id2    the rich articles in the order requested, null for those which failed
+ *
+ * A response is written when its enrichment completes, no thread waits for it. This holds as long as
+ * the enricher returns CompletableFutures, as ArticleEnricherImpl and ClusteredArticleEnricher do;
+ * any other future is waited for on the blocking executor, a bounded pool owned by the server unless
+ * one is set. Connections are kept alive and pipelined requests are answered in order, HTTP/1.0 ones
+ * too when they ask for it. Closing a connection cancels its pending enrichments.
+ *
+ * @author fibanez
+ */
+public class EnricherHttpServer implements AutoCloseable {
+
+    private static final String ARTICLES_PATH = "/articles";
+    private static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+    private final ArticleEnricher enricher;
+    private final InetSocketAddress address;
+    private final int eventLoopCount;
+    private int maxPendingResponses = 16;
+    private int maxBatchSize = 100;
+    private long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(60);
+    private int blockingThreads = 16;
+    private int blockingQueueSize = 256;
+    private Executor blockingExecutor;
+    private ThreadPoolExecutor ownedBlockingExecutor;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder responsesWritten = new LongAdder();
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] eventLoops;
+    private int nextEventLoop;
+
+    /**
+     * @param enricher
+     * @param address to listen on, port 0 picks a free port
+     * @param eventLoops number of selector threads serving the connections
+     */
+    public EnricherHttpServer(ArticleEnricher enricher, InetSocketAddress address, int eventLoops) {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("At least one event loop is required");
+        }
+        this.enricher = enricher;
+        this.address = address;
+        this.eventLoopCount = eventLoops;
+    }
+
+    /**
+     * Binds the address and starts the event loops, the first of which also accepts the connections.
+     */
+    public synchronized EnricherHttpServer start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, 1024);
+            serverChannel.configureBlocking(false);
+
+            eventLoops = new EventLoop[eventLoopCount];
+            for (int i = 0; i < eventLoopCount; i++) {
+                eventLoops[i] = new EventLoop("enricher-http-" + i, idleTimeoutNanos);
+            }
+            serverChannel.register(eventLoops[0].selector(), SelectionKey.OP_ACCEPT, new Acceptor());
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        if (blockingExecutor == null) {
+            ownedBlockingExecutor = newBlockingExecutor(blockingThreads, blockingQueueSize);
+            blockingExecutor = ownedBlockingExecutor;
+        }
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+        return this;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getResponsesWritten() {
+        return responsesWritten.sum();
+    }
+
+    /**
+     * @param maxPendingResponses per connection, reading stops above it until responses are written
+     */
+    public void setMaxPendingResponses(int maxPendingResponses) {
+        this.maxPendingResponses = maxPendingResponses;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Must be set before start.
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Must be set before start, the server does not shut it down.
+     *
+     * @param blockingExecutor waits for the futures of enrichers not returning CompletableFutures
+     */
+    public void setBlockingExecutor(Executor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    /**
+     * Sizes the blocking executor owned by the server, used when none is set. Must be set before start.
+     *
+     * @param threads waiting at most at once for the futures
+     * @param queueSize futures waiting for a thread, the requests above it are answered with a 503
+     */
+    public void setBlockingThreads(int threads, int queueSize) {
+        if (threads < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("threads and queueSize must be at least 1");
+        }
+        this.blockingThreads = threads;
+        this.blockingQueueSize = queueSize;
+    }
+
+    /**
+     * Stops accepting, closes every connection, cancels the pending enrichments and shuts down the
+     * blocking executor owned by the server.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverChannel == null) {
+            return;
+        }
+        serverChannel.close();
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+        try {
+            for (EventLoop eventLoop : eventLoops) {
+                if (!eventLoop.inEventLoop()) {
+                    eventLoop.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownedBlockingExecutor != null) {
+            ownedBlockingExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Routes a request, called on the event loop of its connection.
+     */
+    CompletableFuture<Response> handle(String method, String target) {
+        if (!method.equals("GET")) {
+            return CompletableFuture.completedFuture(Response.status(405));
+        }
+        int query = target.indexOf('?');
+        String path = query < 0 ? target : target.substring(0, query);
+        if (path.startsWith(ARTICLES_PATH + "/")) {
+            String articleId = decodePathSegment(path.substring(ARTICLES_PATH.length() + 1));
+            if (StringUtils.isBlank(articleId)) {
+                return CompletableFuture.completedFuture(Response.status(400));
+            }
+            CompletableFuture<RichArticle> article = enrich(articleId);
+            return Futures.propagateCancellation(article.thenApply(a -> Response.ok(RichArticleJson.toJson(a))), article);
+        }
+        if (path.equals(ARTICLES_PATH)) {
+            String ids = query < 0 ? null : queryParameter(target.substring(query + 1), "ids");
+            if (StringUtils.isBlank(ids)) {
+                return CompletableFuture.completedFuture(Response.status(400));
+            }
+            return enrichBatch(ids.split(","));
+        }
+        return CompletableFuture.completedFuture(Response.status(404));
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    void responseWritten() {
+        responsesWritten.increment();
+    }
+
+    private CompletableFuture<Response> enrichBatch(String[] articleIds) {
+        if (articleIds.length > maxBatchSize) {
+            return CompletableFuture.completedFuture(Response.status(400));
+        }
+        CompletableFuture<?>[] enrichments = new CompletableFuture<?>[articleIds.length];
+        List<CompletableFuture<RichArticle>> articles = new ArrayList<>(articleIds.length);
+        for (int i = 0; i < articleIds.length; i++) {
+            CompletableFuture<RichArticle> enrichment = enrich(articleIds[i].trim());
+            enrichments[i] = enrichment;
+            articles.add(enrichment.exceptionally(e -> null));
+        }
+        return Futures.propagateCancellation(CompletableFuture.allOf(articles.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<RichArticle> result = new ArrayList<>(articles.size());
+            for (CompletableFuture<RichArticle> article : articles) {
+                result.add(article.join());
+            }
+            return Response.ok(RichArticleJson.toJson(result));
+        }), enrichments);
+    }
+
+    /**
+     * A RejectedExecutionException of a full blocking executor fails the returned future, answered with a 503.
+     */
+    private CompletableFuture<RichArticle> enrich(String articleId) {
+        try {
+            Future<RichArticle> article = enricher.enrichArticleWithId(articleId);
+            return article instanceof CompletableFuture
+                    ? (CompletableFuture<RichArticle>) article
+                    : Futures.toCompletableFutureInline(article, blockingExecutor);
+        } catch (RuntimeException e) {
+            CompletableFuture<RichArticle> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static ThreadPoolExecutor newBlockingExecutor(int threads, int queueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "enricher-blocking-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static String queryParameter(String query, String name) {
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                return decode(parameter.substring(equals + 1));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Percent-decodes a path segment, where a '+' is a '+' and not a space as in a query.
+     *
+     * @return the segment decoded, or null if an escape is malformed
+     */
+    static String decodePathSegment(String segment) {
+        if (segment.indexOf('%') < 0) {
+            return segment;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c != '%') {
+                bytes.write(c);
+                continue;
+            }
+            int high = i + 2 < segment.length() ? Character.digit(segment.charAt(i + 1), 16) : -1;
+            int low = high < 0 ? -1 : Character.digit(segment.charAt(i + 2), 16);
+            if (low < 0) {
+                return null;
+            }
+            bytes.write((high << 4) + low);
+            i += 2;
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private final class Acceptor implements SelectionHandler {
+
+        @Override
+        public void handle(SelectionKey key) throws IOException {
+            SocketChannel channel;
+            while ((channel = acceptQuietly(key)) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                } catch (IOException e) {
+                    channel.close();
+                    continue;
+                }
+                EventLoop eventLoop = eventLoops[nextEventLoop++ % eventLoops.length];
+                HttpConnection connection = new HttpConnection(EnricherHttpServer.this, eventLoop, channel, maxPendingResponses);
+                openConnections.incrementAndGet();
+                eventLoop.execute(connection, () -> {
+                    try {
+                        connection.register();
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return the next pending connection, or null, also when out of file descriptors so that the
+         * connections already open keep being served. Accepting then pauses for a while, instead of
+         * failing again straight away in a busy loop.
+         */
+        private SocketChannel acceptQuietly(SelectionKey key) {
+            try {
+                return serverChannel.accept();
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    System.err.println("Accepting a connection failed, retrying in " + ACCEPT_BACKOFF_MILLIS + " ms: " + e);
+                    key.interestOps(0);
+                    eventLoops[0].schedule(ACCEPT_BACKOFF_MILLIS, TimeUnit.MILLISECONDS, () -> {
+                        if (key.isValid()) {
+                            key.interestOps(SelectionKey.OP_ACCEPT);
+                        }
+                    });
+                }
+                return null;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
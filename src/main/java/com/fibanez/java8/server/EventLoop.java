@@ -0,0 +1,213 @@
+package com.fibanez.java8.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A selector and the thread running it. Channels registered with the loop are only touched by its
+ * thread, other threads hand work to it with execute().
+ *
+ * A handler or task which throws only closes its own connection, the loop and the other connections
+ * carry on.
+ *
+ * @author fibanez
+ */
+final class EventLoop implements Runnable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Selector selector;
+    private final Thread thread;
+    private final long idleTimeoutNanos;
+    private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Task> timers = new PriorityQueue<>((a, b) -> Long.signum(a.due - b.due));
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    EventLoop(String name, long idleTimeoutNanos) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.idleTimeoutNanos = idleTimeoutNanos;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * @return buffer shared by the connections of the loop for their reads
+     */
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void execute(Runnable task) {
+        execute(null, task);
+    }
+
+    /**
+     * @param owner closed if the task throws, may be null
+     * @param task
+     */
+    void execute(SelectionHandler owner, Runnable task) {
+        tasks.add(new Task(owner, task));
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Runs the task on the loop once the delay has elapsed. Only called on the thread of the loop.
+     *
+     * @param delay
+     * @param unit
+     * @param task
+     */
+    void schedule(long delay, TimeUnit unit, Runnable task) {
+        Task timer = new Task(null, task);
+        timer.due = System.nanoTime() + unit.toNanos(delay);
+        timers.add(timer);
+    }
+
+    /**
+     * Closes every channel of the loop and stops it.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    void join() throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        long lastIdleCheck = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(selectTimeoutMillis());
+                wakeupPending.set(false);
+                runTasks();
+                runTimers();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SelectionHandler handler = (SelectionHandler) key.attachment();
+                    try {
+                        handler.handle(key);
+                    } catch (IOException | RuntimeException e) {
+                        closeQuietly(handler);
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - lastIdleCheck >= IDLE_CHECK_NANOS) {
+                    closeIdleConnections(now);
+                    lastIdleCheck = now;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The selector itself failed, the connections of the loop are closed below
+            running = false;
+        } finally {
+            runTasks();
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                closeQuietly((SelectionHandler) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void runTasks() {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                if (task.owner != null) {
+                    closeQuietly(task.owner);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how long the select may block, until the idle check or the next timer, at least 1 as 0 blocks forever
+     */
+    private long selectTimeoutMillis() {
+        long timeoutNanos = IDLE_CHECK_NANOS;
+        Task timer = timers.peek();
+        if (timer != null) {
+            timeoutNanos = Math.min(timeoutNanos, timer.due - System.nanoTime());
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+    }
+
+    private void runTimers() {
+        long now = System.nanoTime();
+        Task timer;
+        while ((timer = timers.peek()) != null && timer.due - now <= 0) {
+            timers.poll();
+            try {
+                timer.runnable.run();
+            } catch (RuntimeException e) {
+                // A timer has no connection to close
+            }
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            Object handler = key.attachment();
+            if (handler instanceof HttpConnection && ((HttpConnection) handler).isIdle(now, idleTimeoutNanos)) {
+                closeQuietly((HttpConnection) handler);
+            }
+        }
+    }
+
+    private static void closeQuietly(SelectionHandler handler) {
+        try {
+            handler.close();
+        } catch (RuntimeException e) {
+            // Nothing more can be done for this connection
+        }
+    }
+
+    private static final class Task {
+        private final SelectionHandler owner;
+        private final Runnable runnable;
+        private long due;
+
+        private Task(SelectionHandler owner, Runnable runnable) {
+            this.owner = owner;
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.fibanez.java8.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A client connection, only touched by the thread of its event loop.
+ *
+ * Requests are parsed as they arrive, pipelined ones included, and their responses are written in the
+ * same order once each is ready, in the HTTP version of the request. Nothing blocks while a response
+ * is pending: the connection keeps reading until too many responses are pending, then stops until
+ * they are written. The connection is closed when the client closes its side.
+ *
+ * Only bodiless requests are accepted, a request with a body is answered with a 400 and the connection closed.
+ *
+ * @author fibanez
+ */
+final class HttpConnection implements SelectionHandler {
+
+    private static final int MAX_HEAD_LENGTH = 8192;
+
+    private final EnricherHttpServer server;
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final int maxPendingResponses;
+    private final ArrayDeque<Exchange> exchanges = new ArrayDeque<>();
+    private SelectionKey key;
+    private ByteBuffer leftover;
+    private boolean inputClosed;
+    private boolean closed;
+    private long lastActive = System.nanoTime();
+
+    HttpConnection(EnricherHttpServer server, EventLoop loop, SocketChannel channel, int maxPendingResponses) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.maxPendingResponses = maxPendingResponses;
+    }
+
+    void register() throws IOException {
+        key = channel.register(loop.selector(), SelectionKey.OP_READ, this);
+    }
+
+    @Override
+    public void handle(SelectionKey key) throws IOException {
+        if (key.isValid() && key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+    }
+
+    boolean isIdle(long now, long idleTimeoutNanos) {
+        return exchanges.isEmpty() && now - lastActive >= idleTimeoutNanos;
+    }
+
+    /**
+     * Closes the channel and cancels the enrichments still pending.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already unusable
+        }
+        Exchange exchange;
+        while ((exchange = exchanges.poll()) != null) {
+            if (exchange.work != null) {
+                exchange.work.cancel(true);
+            }
+        }
+        server.connectionClosed();
+    }
+
+    private void read() throws IOException {
+        ByteBuffer buffer = loop.readBuffer();
+        buffer.clear();
+        if (leftover != null) {
+            buffer.put(leftover);
+            leftover = null;
+        }
+        if (channel.read(buffer) < 0) {
+            // The client went away, nobody is left to read the pending responses
+            close();
+            return;
+        }
+        lastActive = System.nanoTime();
+        buffer.flip();
+        parse(buffer);
+    }
+
+    /**
+     * Starts a response for each complete request in the buffer, keeping what is left for the next read.
+     */
+    private void parse(ByteBuffer buffer) {
+        while (!inputClosed && exchanges.size() < maxPendingResponses) {
+            int headEnd = findHeadEnd(buffer);
+            if (headEnd < 0) {
+                if (buffer.remaining() > MAX_HEAD_LENGTH) {
+                    reject(431);
+                    buffer.position(buffer.limit());
+                }
+                break;
+            }
+            byte[] head = new byte[headEnd - buffer.position()];
+            buffer.get(head);
+            accept(new String(head, StandardCharsets.ISO_8859_1));
+        }
+        if (buffer.hasRemaining() && !inputClosed) {
+            leftover = ByteBuffer.allocate(buffer.remaining());
+            leftover.put(buffer);
+            leftover.flip();
+        }
+        updateInterest();
+    }
+
+    private void accept(String head) {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            reject(400);
+            return;
+        }
+        boolean http10 = requestLine[2].equals("HTTP/1.0");
+        boolean keepAlive = !http10;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim();
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Connection")) {
+                keepAlive = value.equalsIgnoreCase("close") ? false : value.equalsIgnoreCase("keep-alive") || keepAlive;
+            } else if ((name.equalsIgnoreCase("Content-Length") && !value.equals("0"))
+                    || name.equalsIgnoreCase("Transfer-Encoding")) {
+                reject(400, http10);
+                return;
+            }
+        }
+
+        Exchange exchange = new Exchange(http10, keepAlive);
+        exchanges.add(exchange);
+        if (!keepAlive) {
+            inputClosed = true;
+        }
+        CompletableFuture<Response> work = server.handle(requestLine[0], requestLine[1]);
+        exchange.work = work;
+        work.whenComplete((response, error) -> {
+            ByteBuffer[] bytes = (response != null ? response : Response.error(error)).encode(exchange.http10, exchange.keepAlive);
+            if (loop.inEventLoop()) {
+                ready(exchange, bytes);
+            } else {
+                loop.execute(this, () -> ready(exchange, bytes));
+            }
+        });
+    }
+
+    private void reject(int status) {
+        reject(status, false);
+    }
+
+    /**
+     * Answers with an error and closes the connection once the responses before it are written.
+     */
+    private void reject(int status, boolean http10) {
+        Exchange exchange = new Exchange(http10, false);
+        exchange.bytes = Response.status(status).encode(http10, false);
+        exchanges.add(exchange);
+        inputClosed = true;
+        flushQuietly();
+    }
+
+    private void ready(Exchange exchange, ByteBuffer[] bytes) {
+        if (closed) {
+            return;
+        }
+        exchange.bytes = bytes;
+        if (exchanges.peek() == exchange) {
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Writes the responses which are ready, in order, and resumes reading once few enough are pending.
+     */
+    private void flush() throws IOException {
+        Exchange head;
+        while ((head = exchanges.peek()) != null && head.bytes != null) {
+            channel.write(head.bytes);
+            if (head.bytes[head.bytes.length - 1].hasRemaining()) {
+                updateInterest();
+                return;
+            }
+            exchanges.poll();
+            server.responseWritten();
+            lastActive = System.nanoTime();
+            if (!head.keepAlive) {
+                close();
+                return;
+            }
+        }
+        if (inputClosed && exchanges.isEmpty()) {
+            close();
+            return;
+        }
+        if (leftover != null && exchanges.size() < maxPendingResponses) {
+            ByteBuffer pending = leftover;
+            leftover = null;
+            parse(pending);
+        } else {
+            updateInterest();
+        }
+    }
+
+    private void updateInterest() {
+        if (closed) {
+            return;
+        }
+        Exchange head = exchanges.peek();
+        int ops = 0;
+        if (!inputClosed && exchanges.size() < maxPendingResponses) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (head != null && head.bytes != null && head.bytes[head.bytes.length - 1].hasRemaining()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * @return the position after the blank line ending the request head, or -1 if it has not arrived yet
+     */
+    private static int findHeadEnd(ByteBuffer buffer) {
+        for (int i = buffer.position(); i + 3 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Exchange {
+        private final boolean http10;
+        private final boolean keepAlive;
+        private CompletableFuture<Response> work;
+        private ByteBuffer[] bytes;
+
+        private Exchange(boolean http10, boolean keepAlive) {
+            this.http10 = http10;
+            this.keepAlive = keepAlive;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.fibanez.java8.server;
+
+import com.fibanez.java8.clients.http.HttpStatusException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Status and JSON body of a response, encoded once it is ready to be written.
+ *
+ * @author fibanez
+ */
+final class Response {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int status;
+    private final byte[] body;
+
+    Response(int status, byte[] body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    /**
+     * @param json copied, so it may be a reusable buffer
+     */
+    static Response ok(ByteBuffer json) {
+        byte[] body = new byte[json.remaining()];
+        json.get(body);
+        return new Response(200, body);
+    }
+
+    static Response status(int status) {
+        return new Response(status, EMPTY);
+    }
+
+    /**
+     * Maps the failure of an enrichment, a missing article upstream is a 404 and a cancelled or
+     * rejected one a 503. The whole cause chain is looked at, as a failure waited for on an executor
+     * surfaces wrapped, e.g. RuntimeException(ExecutionException(HttpStatusException)).
+     */
+    static Response error(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException && ((HttpStatusException) cause).getStatusCode() == 404) {
+                return status(404);
+            }
+            if (cause instanceof CancellationException || cause instanceof RejectedExecutionException) {
+                return status(503);
+            }
+        }
+        return status(500);
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param http10 answers an HTTP/1.0 request, which needs an explicit keep-alive
+     * @param keepAlive
+     * @return status line and headers, then the body, to be written with a single gathering write
+     */
+    ByteBuffer[] encode(boolean http10, boolean keepAlive) {
+        StringBuilder head = new StringBuilder(128)
+                .append(http10 ? "HTTP/1.0 " : "HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        if (body.length > 0) {
+            head.append("Content-Type: application/json\r\n");
+        }
+        head.append("Content-Length: ").append(body.length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (http10) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+        return new ByteBuffer[] {
+                ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.US_ASCII)),
+                ByteBuffer.wrap(body)
+        };
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 431: return "Request Header Fields Too Large";
+            case 503: return "Service Unavailable";
+            default: return "Internal Server Error";
+        }
+    }
+}
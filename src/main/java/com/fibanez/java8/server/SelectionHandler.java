@@ -0,0 +1,16 @@
+package com.fibanez.java8.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Attachment of a selection key, called by its event loop when the key is selected.
+ *
+ * @author fibanez
+ */
+interface SelectionHandler {
+
+    void handle(SelectionKey key) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,51 @@
+package com.fibanez.java8.utils;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list backed by an array of its exact size, which takes less memory than an ArrayList
+ * with spare capacity or an unmodifiable wrapper around it.
+ *
+ * @author fibanez
+ */
+public final class ArrayBackedList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final ArrayBackedList<Object> EMPTY = new ArrayBackedList<>(new Object[0]);
+
+    private final Object[] elements;
+
+    private ArrayBackedList(Object[] elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Copies the collection.
+     *
+     * @param collection
+     * @param <E>
+     * @return ArrayBackedList<E> with the elements of the collection, empty if it is null or empty
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> ArrayBackedList<E> copyOf(Collection<? extends E> collection) {
+        if (collection instanceof ArrayBackedList) {
+            return (ArrayBackedList<E>) collection;
+        }
+        if (collection == null || collection.isEmpty()) {
+            return (ArrayBackedList<E>) EMPTY;
+        }
+        return new ArrayBackedList<>(collection.toArray());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+}
@@ -1,10 +1,13 @@
 package com.fibanez.java8.utils;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -13,8 +16,13 @@ import java.util.stream.Stream;
  */
 public class Futures {
 
+    private static final AtomicInteger blockedThreads = new AtomicInteger();
+
     /**
-     * Wrap a sync or async future object into a completableFuture object
+     * Wrap a sync or async future object into a completableFuture object.
+     *
+     * Cancelling the returned completableFuture cancels the wrapped future and interrupts the
+     * thread blocked waiting on it, if any, so no executor thread is held by an abandoned call.
      *
      * @param future
      * @param executor
@@ -22,17 +30,94 @@ public class Futures {
      * @return CompletableFuture<T>
      */
     public static <T> CompletableFuture<T> toCompletableFuture(Future<T> future, Executor executor) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
+        return toCompletableFuture(future, executor, null);
+    }
+
+    /**
+     * Same as toCompletableFuture(future, executor), also counting the thread blocked on the future
+     * in the given counter, i.e. the one of the executor.
+     *
+     * @param future
+     * @param executor
+     * @param executorBlockedThreads incremented while a thread waits on the future, may be null
+     * @param <T>
+     * @return CompletableFuture<T>
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(Future<T> future, Executor executor,
+                                                               AtomicInteger executorBlockedThreads) {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        BlockingGetTask<T> task = new BlockingGetTask<>(future, completableFuture, executorBlockedThreads);
+        completableFuture.whenComplete((value, e) -> {
+            if (completableFuture.isCancelled()) {
+                future.cancel(true);
+                task.cancel();
             }
-        }, executor);
+        });
+        executor.execute(task);
+        return completableFuture;
     }
 
     /**
-     * Given a stream of futures, return a future with a list of objects
+     * Wrap a future object into a completableFuture object, handing off to the executor only when
+     * a thread has to block on it:
+     * - a future already done is unwrapped in the calling thread,
+     * - a CompletionStage completes the completableFuture in the thread which completes it,
+     * - any other future is waited on in the executor, as toCompletableFuture does.
+     *
+     * Dependent stages then run in the thread which completed the downstream call, so they must not
+     * block.
+     *
+     * @param future
+     * @param executor
+     * @param <T>
+     * @return CompletableFuture<T>
+     */
+    public static <T> CompletableFuture<T> toCompletableFutureInline(Future<T> future, Executor executor) {
+        return toCompletableFutureInline(future, executor, null);
+    }
+
+    /**
+     * Same as toCompletableFutureInline(future, executor), also counting the thread blocked on the
+     * future in the given counter, i.e. the one of the executor.
+     *
+     * @param future
+     * @param executor
+     * @param executorBlockedThreads incremented while a thread waits on the future, may be null
+     * @param <T>
+     * @return CompletableFuture<T>
+     */
+    public static <T> CompletableFuture<T> toCompletableFutureInline(Future<T> future, Executor executor,
+                                                                     AtomicInteger executorBlockedThreads) {
+        if (future instanceof CompletionStage) {
+            // A Future<T> which is a CompletionStage completes with the same T, the cast cannot be checked
+            @SuppressWarnings("unchecked")
+            CompletionStage<T> stage = (CompletionStage<T>) future;
+            CompletableFuture<T> completableFuture = new CompletableFuture<>();
+            completeWith(stage, completableFuture);
+            return propagateCancellation(completableFuture, future);
+        }
+        if (future.isDone()) {
+            CompletableFuture<T> completableFuture = new CompletableFuture<>();
+            completeWithDone(future, completableFuture);
+            return completableFuture;
+        }
+        return toCompletableFuture(future, executor, executorBlockedThreads);
+    }
+
+    /**
+     * Returns how many threads are waiting right now on a future.get() of a future wrapped by
+     * toCompletableFuture, in the whole JVM.
+     *
+     * @return number of blocked threads
+     */
+    public static int getBlockedThreads() {
+        return blockedThreads.get();
+    }
+
+    /**
+     * Given a stream of futures, return a future with a list of objects.
+     *
+     * Cancelling the returned future cancels every future of the stream.
      *
      * @param futures
      * @param <T>
@@ -46,8 +131,64 @@ public class Futures {
         CompletableFuture<Void> allDoneFuture =CompletableFuture.allOf(
                 futureList.toArray(new CompletableFuture[futureList.size()]));
 
-        return allDoneFuture.thenApply(v ->
+        CompletableFuture<List<T>> joinedFuture = allDoneFuture.thenApply(v ->
                 futureList.stream().map(future -> future.join()).collect(Collectors.toList()));
+        return propagateCancellation(joinedFuture, futureList.toArray(new Future[futureList.size()]));
+    }
+
+    /**
+     * Cancels the upstream futures when the dependent future is cancelled. CompletableFuture does
+     * not propagate cancellation backwards through thenApply, thenCompose or exceptionally, so
+     * every stage which is handed to a caller has to be linked with the futures it waits on.
+     *
+     * @param dependent
+     * @param upstream
+     * @param <T>
+     * @return the dependent future
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> dependent, Future<?>... upstream) {
+        dependent.whenComplete((value, e) -> {
+            if (dependent.isCancelled()) {
+                for (Future<?> future : upstream) {
+                    future.cancel(true);
+                }
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Completes the target future with the outcome of the source future.
+     *
+     * @param source
+     * @param target
+     * @param <T>
+     */
+    public static <T> void completeWith(CompletionStage<T> source, CompletableFuture<T> target) {
+        source.whenComplete((value, e) -> {
+            if (e != null) {
+                target.completeExceptionally(e);
+            } else {
+                target.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Completes the completableFuture with the outcome of a future which is done, so get() does not
+     * block and no thread is counted as blocked.
+     */
+    private static <T> void completeWithDone(Future<T> future, CompletableFuture<T> completableFuture) {
+        try {
+            completableFuture.complete(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completableFuture.completeExceptionally(new RuntimeException(e));
+        } catch (ExecutionException | CancellationException e) {
+            completableFuture.completeExceptionally(new RuntimeException(e));
+        } catch (RuntimeException e) {
+            completableFuture.completeExceptionally(e);
+        }
     }
 
     /**
@@ -60,4 +201,76 @@ public class Futures {
         future.completeExceptionally(new RuntimeException(mensage));
         return future;
     }
-}
\ No newline at end of file
+
+    /**
+     * Blocks on future.get() and completes the completableFuture with the outcome. The running
+     * thread is tracked so that a cancellation can interrupt it, and only while it runs this task.
+     */
+    static class BlockingGetTask<T> implements Runnable {
+
+        private final Future<T> future;
+
+        private final CompletableFuture<T> completableFuture;
+
+        private final AtomicInteger executorBlockedThreads;
+
+        private Thread runner;
+
+        private boolean cancelled;
+
+        BlockingGetTask(Future<T> future, CompletableFuture<T> completableFuture, AtomicInteger executorBlockedThreads) {
+            this.future = future;
+            this.completableFuture = completableFuture;
+            this.executorBlockedThreads = executorBlockedThreads;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            blockedThreads.incrementAndGet();
+            if (executorBlockedThreads != null) {
+                executorBlockedThreads.incrementAndGet();
+            }
+            try {
+                completableFuture.complete(future.get());
+            } catch (InterruptedException e) {
+                if (!isCancelled()) {
+                    Thread.currentThread().interrupt();
+                }
+                completableFuture.completeExceptionally(new RuntimeException(e));
+            } catch (ExecutionException | CancellationException e) {
+                completableFuture.completeExceptionally(new RuntimeException(e));
+            } catch (RuntimeException e) {
+                completableFuture.completeExceptionally(e);
+            } finally {
+                blockedThreads.decrementAndGet();
+                if (executorBlockedThreads != null) {
+                    executorBlockedThreads.decrementAndGet();
+                }
+                synchronized (this) {
+                    runner = null;
+                }
+                // clears the interrupt raised by cancel() so it does not leak to the next task
+                if (isCancelled()) {
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
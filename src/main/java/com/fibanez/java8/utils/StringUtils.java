@@ -10,6 +10,8 @@ public class StringUtils {
 
     public static final String EMPTY = "";
 
+    private static final WeakInterner<String> CANONICAL_STRINGS = new WeakInterner<>();
+
     /**
      * Returns the id content, which is the last path part, from a URL
      *
@@ -37,4 +39,16 @@ public class StringUtils {
         return str == null || str.trim().length() == 0;
     }
 
+    /**
+     * Returns the canonical instance of the string, so that equal ids, names, captions and alt texts
+     * held by many models are stored once. Strings no longer used by any model are garbage collected,
+     * so a unique value only costs its pool entry while it is in use.
+     *
+     * @param str
+     * @return canonical string, or null if str is null
+     */
+    public static String canonical(String str) {
+        return CANONICAL_STRINGS.intern(str);
+    }
+
 }
@@ -0,0 +1,65 @@
+package com.fibanez.java8.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of canonical instances, i.e. equal values are replaced by the same instance, which is only
+ * weakly referenced by the pool so that it is collected once nothing else uses it.
+ *
+ * The pool is split in segments, each one locked on its own, so that threads interning different
+ * values rarely contend.
+ *
+ * @author fibanez
+ */
+public class WeakInterner<T> {
+
+    private static final int SEGMENTS = 16;
+
+    private final List<Map<T, WeakReference<T>>> segments = new ArrayList<>(SEGMENTS);
+
+    public WeakInterner() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new WeakHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the canonical instance equal to the value, which is the value itself the first time.
+     *
+     * @param value
+     * @return the canonical instance, or null if the value is null
+     */
+    public T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        Map<T, WeakReference<T>> segment = segments.get((hash ^ (hash >>> 16)) & (SEGMENTS - 1));
+        synchronized (segment) {
+            WeakReference<T> reference = segment.get(value);
+            T canonical = reference != null ? reference.get() : null;
+            if (canonical == null) {
+                segment.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * @return number of values in the pool, including the ones not collected yet
+     */
+    public int size() {
+        int size = 0;
+        for (Map<T, WeakReference<T>> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+}
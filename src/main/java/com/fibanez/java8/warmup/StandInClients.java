@@ -0,0 +1,47 @@
+package com.fibanez.java8.warmup;
+
+import com.fibanez.java8.clients.ArticleRepositoryClient;
+import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.models.ArticleReference;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.Video;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Clients which answer at once with synthetic articles, images and videos, so that the enrichment
+ * code can be exercised without calling the real services.
+ *
+ * @author fibanez
+ */
+public class StandInClients implements ArticleRepositoryClient, AssetsServiceClient {
+
+    private final int videosPerArticle;
+
+    public StandInClients(int videosPerArticle) {
+        this.videosPerArticle = videosPerArticle;
+    }
+
+    @Override
+    public Future<ArticleReference> getArticleReferenceForId(String articleId) {
+        List<String> videoUrls = new ArrayList<>(videosPerArticle);
+        for (int i = 0; i < videosPerArticle; i++) {
+            videoUrls.add("http://warmup.local/videos/" + articleId + "-" + i + ".mov");
+        }
+        return CompletableFuture.completedFuture(new ArticleReference(articleId, "Warm up " + articleId,
+                "http://warmup.local/images/" + articleId + ".jpg", videoUrls));
+    }
+
+    @Override
+    public Future<Image> getImageById(String id) {
+        return CompletableFuture.completedFuture(new Image(id, "alt " + id));
+    }
+
+    @Override
+    public Future<Video> getVideoById(String id) {
+        return CompletableFuture.completedFuture(new Video(id, "caption " + id));
+    }
+}
@@ -0,0 +1,80 @@
+package com.fibanez.java8.warmup;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a warm up: how the average latency of each batch of synthetic enrichments went down
+ * from the cold start to the steady state.
+ *
+ * The steady state is reached at the first batch whose average latency is within 20% of the last
+ * batch.
+ *
+ * @author fibanez
+ */
+public class WarmUpReport {
+
+    private static final double STEADY_STATE_TOLERANCE = 1.2;
+
+    private final int enrichments;
+    private final long elapsedNanos;
+    private final List<Long> batchAverageNanos;
+
+    public WarmUpReport(int enrichments, long elapsedNanos, List<Long> batchAverageNanos) {
+        this.enrichments = enrichments;
+        this.elapsedNanos = elapsedNanos;
+        this.batchAverageNanos = Collections.unmodifiableList(batchAverageNanos);
+    }
+
+    public int getEnrichments() {
+        return enrichments;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return average latency of every batch, in order
+     */
+    public List<Long> getBatchAverageNanos() {
+        return batchAverageNanos;
+    }
+
+    /**
+     * @return average latency of the first batch, the cold code paths
+     */
+    public long getColdLatencyNanos() {
+        return batchAverageNanos.isEmpty() ? 0 : batchAverageNanos.get(0);
+    }
+
+    /**
+     * @return average latency of the last batch
+     */
+    public long getSteadyStateLatencyNanos() {
+        return batchAverageNanos.isEmpty() ? 0 : batchAverageNanos.get(batchAverageNanos.size() - 1);
+    }
+
+    /**
+     * @return number of batches run until the latency reached the steady state
+     */
+    public int getBatchesToSteadyState() {
+        long steadyState = getSteadyStateLatencyNanos();
+        for (int i = 0; i < batchAverageNanos.size(); i++) {
+            if (batchAverageNanos.get(i) <= steadyState * STEADY_STATE_TOLERANCE) {
+                return i + 1;
+            }
+        }
+        return batchAverageNanos.size();
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpReport{enrichments=" + enrichments
+                + ", elapsedMillis=" + elapsedNanos / 1000000
+                + ", coldLatencyMicros=" + getColdLatencyNanos() / 1000
+                + ", steadyStateLatencyMicros=" + getSteadyStateLatencyNanos() / 1000
+                + ", batchesToSteadyState=" + getBatchesToSteadyState() + "/" + batchAverageNanos.size()
+                + "}";
+    }
+}
@@ -2,11 +2,13 @@ package com.fibanez.java8;
 
 import com.fibanez.java8.clients.ArticleRepositoryClient;
 import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.hotkeys.HeavyHitters;
 import com.fibanez.java8.models.ArticleReference;
 import com.fibanez.java8.models.Image;
 import com.fibanez.java8.models.RichArticle;
 import com.fibanez.java8.models.Video;
 import com.fibanez.java8.utils.StringUtils;
+import com.fibanez.java8.warmup.WarmUpReport;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -17,10 +19,12 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -442,6 +446,241 @@ public class ArticleEnricherImplTest {
         assertThat(richArticle.getVideos(), hasSize(totalVideosUrls));
     }
 
+    @Test
+    public void when_richArticleFutureCancelled_expect_articleReferenceCallCancelled() throws Exception {
+        CompletableFuture<ArticleReference> referenceFuture = new CompletableFuture<>();
+
+        when(repositoryClient.getArticleReferenceForId(anyString())).thenReturn(referenceFuture);
+        Future<RichArticle> futureResult = enricher.enrichArticleWithId("articleId");
+        futureResult.cancel(true);
+
+        assertThat(futureResult.isCancelled(), is(true));
+        assertThat(referenceFuture.isCancelled(), is(true));
+    }
+
+    @Test
+    public void when_videoFuturesCancelled_expect_assetCallsCancelled() throws Exception {
+        CompletableFuture<Video> videoFuture = new CompletableFuture<>();
+
+        when(assetsServiceClient.getVideoById(anyString())).thenReturn(videoFuture);
+        CompletableFuture<List<Video>> futureResult = enricher.getVideoFuturesFromUrls(videoUrls);
+        futureResult.cancel(true);
+
+        assertThat(videoFuture.isCancelled(), is(true));
+    }
+
+    @Test
+    public void when_inlineCompletion_expect_richArticleWithoutThreadHops() throws Exception {
+        String articleId = "articleId";
+        ArticleReference reference = new ArticleReference(articleId, "articleName", referenceImageUrl, videoUrls);
+        Image imageTest = new Image("idimage1.jpg", "alt");
+
+        when(repositoryClient.getArticleReferenceForId(anyString())).thenReturn(CompletableFuture.completedFuture(reference));
+        when(assetsServiceClient.getImageById(anyString())).thenReturn(CompletableFuture.completedFuture(imageTest));
+        when(assetsServiceClient.getVideoById(anyString())).thenReturn(CompletableFuture.completedFuture(new Video("id", "caption")));
+
+        enricher.setInlineCompletion(true);
+        RichArticle richArticle = enricher.enrichArticleWithId(articleId).get();
+
+        assertThat(richArticle.getHeroImage(), is(imageTest));
+        assertThat(richArticle.getVideos(), hasSize(3));
+        assertThat(enricher.getExecutorMonitor().getSubmittedTasks(), is(0L));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void when_closed_expect_enrichmentRejected() throws Exception {
+        enricher.close();
+        enricher.enrichArticleWithId("articleId").get();
+    }
+
+    @Test
+    public void when_closed_expect_inFlightEnrichmentDrained() throws Exception {
+        ArticleReference reference = new ArticleReference("articleId", "articleName", null, Collections.EMPTY_LIST);
+        CompletableFuture<ArticleReference> referenceFuture = getDelayedFutureSuccess(reference, 50, TimeUnit.MILLISECONDS);
+
+        when(repositoryClient.getArticleReferenceForId(anyString())).thenReturn(referenceFuture);
+        Future<RichArticle> futureResult = enricher.enrichArticleWithId("articleId");
+        enricher.close();
+
+        assertThat(futureResult.get().getId(), is("articleId"));
+        assertThat(enricher.getInFlight(), is(0));
+    }
+
+    @Test
+    public void when_closedAndDrainTimesOut_expect_inFlightEnrichmentCancelled() throws Exception {
+        CompletableFuture<ArticleReference> referenceFuture = new CompletableFuture<>();
+
+        when(repositoryClient.getArticleReferenceForId(anyString())).thenReturn(referenceFuture);
+        Future<RichArticle> futureResult = enricher.enrichArticleWithId("articleId");
+        enricher.setDrainTimeout(10, TimeUnit.MILLISECONDS);
+        enricher.close();
+
+        assertThat(futureResult.isCancelled(), is(true));
+        assertThat(referenceFuture.isCancelled(), is(true));
+    }
+
+    @Test
+    public void when_warmUp_expect_reportAndClientsNotCalled() throws Exception {
+        WarmUpReport report = enricher.warmUp(100);
+
+        assertThat(report.getEnrichments(), is(100));
+        assertThat(report.getBatchAverageNanos(), hasSize(20));
+        verify(repositoryClient, times(0)).getArticleReferenceForId(anyString());
+        verify(assetsServiceClient, times(0)).getImageById(anyString());
+    }
+
+    @Test
+    public void when_warmUpNotMultipleOfBatches_expect_exactlyThoseEnrichments() throws Exception {
+        WarmUpReport report = enricher.warmUp(110);
+
+        assertThat(report.getEnrichments(), is(110));
+        assertThat(report.getBatchAverageNanos(), hasSize(20));
+        assertThat(enricher.warmUp(30).getEnrichments(), is(30));
+        assertThat(enricher.warmUp(7).getBatchAverageNanos(), hasSize(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void when_warmUpZero_expect_illegalArgument() throws Exception {
+        enricher.warmUp(0);
+    }
+
+    @Test
+    public void when_moreVideosThanMaxConcurrentCalls_expect_boundedCallsAndAllVideosInOrder() throws Exception {
+        int totalVideosUrls = 20;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> listVideoUrls = new ArrayList<>();
+        for (int i = 0; i < totalVideosUrls; i++) {
+            listVideoUrls.add("http://www.videourl.com/today/video" + i + ".mov");
+        }
+        when(assetsServiceClient.getVideoById(anyString())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            CompletableFuture<Video> future = getDelayedFutureSuccess(
+                    new Video(invocation.getArgument(0), "caption"), randomBetweenRange(500, 1000), TimeUnit.MICROSECONDS);
+            return future.whenComplete((video, e) -> running.decrementAndGet());
+        });
+
+        enricher.setMaxConcurrentAssetCalls(3);
+        List<Video> videos = enricher.getVideoFuturesFromUrls(listVideoUrls).get();
+
+        assertThat(videos, hasSize(totalVideosUrls));
+        assertThat(videos.get(totalVideosUrls - 1).getId(), is("video19.mov"));
+        assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+    }
+
+    @Test
+    public void when_videoCallThrowsInWindow_expect_videosFailedInsteadOfHanging() throws Exception {
+        CompletableFuture<Video> firstVideoFuture = new CompletableFuture<>();
+        ArticleEnricherImpl throwingEnricher = new ArticleEnricherImpl(repositoryClient, assetsServiceClient) {
+            @Override
+            public CompletableFuture<Video> getVideoFutureFromClient(String videoId) {
+                if (videoId.equals("idvideo2.mov")) {
+                    throw new IllegalStateException("Rejected");
+                }
+                return videoId.equals("idvideo1.mov") ? firstVideoFuture : CompletableFuture.completedFuture(null);
+            }
+        };
+        throwingEnricher.setMaxConcurrentAssetCalls(1);
+
+        CompletableFuture<List<Video>> videosFuture = throwingEnricher.getVideoFuturesFromUrls(videoUrls);
+        firstVideoFuture.complete(new Video("idvideo1.mov", "caption1"));
+
+        try {
+            videosFuture.get(1, TimeUnit.SECONDS);
+            fail("The videos must fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        } finally {
+            throwingEnricher.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void when_enrichEarlyWithNegativeFirstVideos_expect_illegalArgumentException() throws Exception {
+        enricher.enrichArticleWithIdEarly("articleId", -1);
+    }
+
+    @Test
+    public void when_enrichEarly_expect_firstVideosThenFullArticle() throws Exception {
+        String articleId = "articleId";
+        ArticleReference reference = new ArticleReference(articleId, "articleName", referenceImageUrl, videoUrls);
+        CompletableFuture<Video> lastVideoFuture = new CompletableFuture<>();
+
+        when(repositoryClient.getArticleReferenceForId(anyString())).thenReturn(CompletableFuture.completedFuture(reference));
+        when(assetsServiceClient.getImageById(anyString())).thenReturn(CompletableFuture.completedFuture(new Image("idimage1.jpg", "alt")));
+        when(assetsServiceClient.getVideoById(anyString())).thenReturn(CompletableFuture.completedFuture(new Video("idvideo1.mov", "caption1")));
+        when(assetsServiceClient.getVideoById("idvideo3.mov")).thenReturn(lastVideoFuture);
+
+        PartialRichArticle partialRichArticle = enricher.enrichArticleWithIdEarly(articleId, 2).get();
+        assertThat(partialRichArticle.getFirstPart().getVideos(), hasSize(2));
+        assertThat(partialRichArticle.getFullArticle().isDone(), is(false));
+
+        lastVideoFuture.complete(new Video("idvideo3.mov", "caption3"));
+        assertThat(partialRichArticle.getFullArticle().get().getVideos(), hasSize(3));
+    }
+
+    @Test
+    public void when_reEnrichArticle_expect_onlyChangedAssetsFetched() throws Exception {
+        Image imageTest = new Image("idimage1.jpg", "alt");
+        Video video1Test = new Video("idvideo1.mov", "caption1");
+        Video video2Test = new Video("idvideo2.mov", "caption2");
+        Video video3Test = new Video("idvideo3.mov", "caption3");
+        RichArticle previous = new RichArticle("articleId", "oldName", imageTest, Arrays.asList(video1Test, video2Test));
+        ArticleReference reference = new ArticleReference("articleId", "newName", referenceImageUrl, videoUrls);
+
+        when(assetsServiceClient.getVideoById("idvideo3.mov")).thenReturn(CompletableFuture.completedFuture(video3Test));
+        RichArticle richArticle = enricher.reEnrichArticle(previous, reference).get();
+
+        assertThat(richArticle.getName(), is("newName"));
+        assertThat(richArticle.getHeroImage(), is(sameInstance(imageTest)));
+        assertThat(richArticle.getVideos(), contains(video1Test, video2Test, video3Test));
+        verify(assetsServiceClient, times(0)).getImageById(anyString());
+        verify(assetsServiceClient, times(1)).getVideoById(anyString());
+        verify(repositoryClient, times(0)).getArticleReferenceForId(anyString());
+    }
+
+    @Test
+    public void when_reEnrichArticleWithNewImage_expect_imageFetched() throws Exception {
+        Image oldImage = new Image("oldimage.jpg", "alt");
+        Image imageTest = new Image("idimage1.jpg", "alt");
+        RichArticle previous = new RichArticle("articleId", "name", oldImage, Collections.EMPTY_LIST);
+        ArticleReference reference = new ArticleReference("articleId", "name", referenceImageUrl, Collections.EMPTY_LIST);
+
+        when(assetsServiceClient.getImageById("idimage1.jpg")).thenReturn(CompletableFuture.completedFuture(imageTest));
+        RichArticle richArticle = enricher.reEnrichArticle(previous, reference).get();
+
+        assertThat(richArticle.getHeroImage(), is(imageTest));
+        assertThat(richArticle.getVideos(), hasSize(0));
+    }
+
+    @Test
+    public void when_reEnrichWithoutArticleReference_expect_failedFuture() throws Exception {
+        CompletableFuture<RichArticle> richArticleFuture = enricher.reEnrichArticle(null, null);
+        assertThat(richArticleFuture.isCompletedExceptionally(), is(true));
+    }
+
+    @Test
+    public void when_reEnrichWithPreviousOfOtherArticle_expect_failedFuture() throws Exception {
+        RichArticle previous = new RichArticle("otherArticleId", "name", null, Collections.EMPTY_LIST);
+        ArticleReference reference = new ArticleReference("articleId", "name", referenceImageUrl, Collections.EMPTY_LIST);
+
+        CompletableFuture<RichArticle> richArticleFuture = enricher.reEnrichArticle(previous, reference);
+        assertThat(richArticleFuture.isCompletedExceptionally(), is(true));
+        verify(assetsServiceClient, times(0)).getImageById(anyString());
+    }
+
+    @Test
+    public void when_reEnrichArticle_expect_countedAsHeavyHitter() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 1024, 4, 1, TimeUnit.HOURS);
+        enricher.setHeavyHitters(heavyHitters, HeavyHitters.disabled());
+        Image imageTest = new Image("idimage1.jpg", "alt");
+        RichArticle previous = new RichArticle("articleId", "name", imageTest, Collections.EMPTY_LIST);
+        ArticleReference reference = new ArticleReference("articleId", "name", referenceImageUrl, Collections.EMPTY_LIST);
+
+        enricher.reEnrichArticle(previous, reference).get();
+        assertThat(heavyHitters.estimate("articleId"), is(1L));
+    }
+
     private <T> Future<T> getMockedFutureWithReturn(T dataToReturn) throws Exception {
         Future future = mock(Future.class);
         when(future.get()).thenReturn(dataToReturn);
@@ -0,0 +1,119 @@
+package com.fibanez.java8.benchmark;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.clients.ArticleRepositoryClient;
+import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.models.ArticleReference;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and thread hops of an enrichment with and without inline completion.
+ *
+ * The stub clients complete their futures in an "io" thread, like a non blocking HTTP client.
+ * handOffs counts the tasks given to the enricher executor, each one a thread hop, so
+ * handOffs / enrichments are the hops per enrichment.
+ *
+ * Run with:
+ *  mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *      -Dexec.args="-cp %classpath org.openjdk.jmh.Main InlineCompletionBenchmark"
+ *
+ * @author fibanez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InlineCompletionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean inlineCompletion;
+
+    @Param({"0", "5"})
+    public int videos;
+
+    private ExecutorService io;
+
+    private ArticleEnricherImpl enricher;
+
+    @Setup
+    public void setUp() {
+        io = Executors.newFixedThreadPool(2);
+        List<String> videoUrls = new ArrayList<>();
+        for (int i = 0; i < videos; i++) {
+            videoUrls.add("http://www.videourl.com/today/video" + i + ".mov");
+        }
+        ArticleReference reference = new ArticleReference("articleId", "articleName",
+                "http://www.linktoimage/idimage1.jpg", videoUrls);
+
+        ArticleRepositoryClient repositoryClient = articleId -> CompletableFuture.supplyAsync(() -> reference, io);
+        AssetsServiceClient assetsServiceClient = new AssetsServiceClient() {
+            @Override
+            public Future<Image> getImageById(String id) {
+                return CompletableFuture.supplyAsync(() -> new Image(id, "alt"), io);
+            }
+
+            @Override
+            public Future<Video> getVideoById(String id) {
+                return CompletableFuture.supplyAsync(() -> new Video(id, "caption"), io);
+            }
+        };
+        enricher = new ArticleEnricherImpl(repositoryClient, assetsServiceClient);
+        enricher.setInlineCompletion(inlineCompletion);
+    }
+
+    @TearDown
+    public void tearDown() {
+        enricher.close();
+        io.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Hops {
+
+        public long enrichments;
+
+        public long handOffs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            enrichments = 0;
+            handOffs = 0;
+        }
+    }
+
+    @Benchmark
+    public RichArticle enrich(Hops hops) throws Exception {
+        long submittedBefore = enricher.getExecutorMonitor().getSubmittedTasks();
+        RichArticle richArticle = enricher.enrichArticleWithId("articleId").get();
+        hops.handOffs += enricher.getExecutorMonitor().getSubmittedTasks() - submittedBefore;
+        hops.enrichments++;
+        return richArticle;
+    }
+}
@@ -0,0 +1,192 @@
+package com.fibanez.java8.benchmark;
+
+import com.fibanez.java8.json.RichArticleJson;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a RichArticle to UTF-8 JSON bytes:
+ *
+ *  reflection      a generic serializer walking the getters, as JSON libraries do
+ *  stringBuilder   hand written, building a String and encoding it
+ *  streaming       RichArticleJson, encoding into the thread's reusable buffer
+ *
+ * Run with the gc profiler to compare the allocation per operation:
+ *  mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *      -Dexec.args="-cp %classpath org.openjdk.jmh.Main JsonSerializationBenchmark -prof gc"
+ *
+ * @author fibanez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"3", "50"})
+    public int videos;
+
+    private RichArticle article;
+
+    @Setup
+    public void setUp() {
+        List<Video> videoList = new ArrayList<>();
+        for (int i = 0; i < videos; i++) {
+            videoList.add(new Video("_98943663_video-" + i + ".mov", "Caption of the video n\u00famero " + i));
+        }
+        article = new RichArticle("articleId", "An article about \"JSON\"",
+                new Image("_98943663_de27-1.jpg", "Hero image"), videoList);
+    }
+
+    @Benchmark
+    public byte[] reflection() {
+        StringBuilder json = new StringBuilder();
+        ReflectiveJson.append(json, article);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] stringBuilder() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"id\":");
+        appendString(json, article.getId());
+        json.append(",\"name\":");
+        appendString(json, article.getName());
+        json.append(",\"heroImage\":{\"id\":");
+        appendString(json, article.getHeroImage().getId());
+        json.append(",\"altText\":");
+        appendString(json, article.getHeroImage().getAltText());
+        json.append("},\"videos\":[");
+        boolean first = true;
+        for (Video video : article.getVideos()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"id\":");
+            appendString(json, video.getId());
+            json.append(",\"caption\":");
+            appendString(json, video.getCaption());
+            json.append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer streaming() {
+        return RichArticleJson.toJson(article);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Serializes any bean through its getters, with the properties of each class cached.
+     */
+    private static final class ReflectiveJson {
+
+        private static final Map<Class<?>, PropertyDescriptor[]> PROPERTIES = new ConcurrentHashMap<>();
+
+        private static void append(StringBuilder json, Object value) {
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof String) {
+                appendString(json, (String) value);
+            } else if (value instanceof Number || value instanceof Boolean) {
+                json.append(value);
+            } else if (value instanceof Collection) {
+                json.append('[');
+                boolean first = true;
+                for (Object element : (Collection<?>) value) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    append(json, element);
+                }
+                json.append(']');
+            } else {
+                json.append('{');
+                boolean first = true;
+                for (PropertyDescriptor property : properties(value.getClass())) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    appendString(json, property.getName());
+                    json.append(':');
+                    append(json, read(property.getReadMethod(), value));
+                }
+                json.append('}');
+            }
+        }
+
+        private static PropertyDescriptor[] properties(Class<?> type) {
+            return PROPERTIES.computeIfAbsent(type, t -> {
+                try {
+                    List<PropertyDescriptor> properties = new ArrayList<>();
+                    for (PropertyDescriptor property : Introspector.getBeanInfo(t, Object.class).getPropertyDescriptors()) {
+                        if (property.getReadMethod() != null) {
+                            properties.add(property);
+                        }
+                    }
+                    return properties.toArray(new PropertyDescriptor[0]);
+                } catch (IntrospectionException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        private static Object read(Method getter, Object bean) {
+            try {
+                return getter.invoke(bean);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.fibanez.java8.benchmark;
+
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Retained heap per cached RichArticle, with the canonical strings and the exact size video list,
+ * compared to the previous layout: a copy of every string per response and the videos in the
+ * ArrayList produced by the stream.
+ *
+ * Every article is built from fresh copies of the strings, as if it had been parsed from its own
+ * response, and shares its assets with the other articles as a popular video does. The used heap is
+ * read after a full GC before and after filling the cache, so retainedBytes / articles are the bytes
+ * retained per cached article. The time of each operation is not meaningful.
+ *
+ * Run with:
+ *  mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *      -Dexec.args="-cp %classpath org.openjdk.jmh.Main RichArticleFootprintBenchmark"
+ *
+ * @author fibanez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RichArticleFootprintBenchmark {
+
+    private static final int ARTICLES = 100000;
+
+    private static final int VIDEOS_PER_ARTICLE = 5;
+
+    private static final int DISTINCT_ASSETS = 1000;
+
+    @Param({"previous", "canonical"})
+    public String layout;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long articles;
+
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            articles = 0;
+            retainedBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public void cacheArticles(Footprint footprint, Blackhole blackhole) {
+        boolean previous = layout.equals("previous");
+        long before = usedHeap();
+        List<Object> cache = new ArrayList<>(ARTICLES);
+        for (int i = 0; i < ARTICLES; i++) {
+            cache.add(previous ? newPreviousArticle(i) : newArticle(i));
+        }
+        long after = usedHeap();
+        footprint.articles += cache.size();
+        footprint.retainedBytes += after - before;
+        blackhole.consume(cache);
+    }
+
+    private static RichArticle newArticle(int i) {
+        List<Video> videos = new ArrayList<>();
+        for (int v = 0; v < VIDEOS_PER_ARTICLE; v++) {
+            int asset = (i + v) % DISTINCT_ASSETS;
+            videos.add(new Video(copy("_98943663_video-" + asset + ".mov"), copy("Caption of video " + asset)));
+        }
+        int image = i % DISTINCT_ASSETS;
+        return new RichArticle(copy("article" + i), copy("Name of article " + i),
+                new Image(copy("_98943663_de27-" + image + ".jpg"), copy("Alt text of image " + image)),
+                videos.stream().collect(Collectors.toList()));
+    }
+
+    private static PreviousRichArticle newPreviousArticle(int i) {
+        List<PreviousAsset> videos = new ArrayList<>();
+        for (int v = 0; v < VIDEOS_PER_ARTICLE; v++) {
+            int asset = (i + v) % DISTINCT_ASSETS;
+            videos.add(new PreviousAsset(copy("_98943663_video-" + asset + ".mov"), copy("Caption of video " + asset)));
+        }
+        int image = i % DISTINCT_ASSETS;
+        return new PreviousRichArticle(copy("article" + i), copy("Name of article " + i),
+                new PreviousAsset(copy("_98943663_de27-" + image + ".jpg"), copy("Alt text of image " + image)),
+                videos.stream().collect(Collectors.toList()));
+    }
+
+    private static String copy(String str) {
+        return new String(str.toCharArray());
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Same fields as Image and Video had before, without canonical strings.
+     */
+    private static class PreviousAsset {
+        private final String id;
+        private final String text;
+
+        private PreviousAsset(String id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static class PreviousRichArticle {
+        private final String id;
+        private final String name;
+        private final PreviousAsset heroImage;
+        private final List<PreviousAsset> videos;
+
+        private PreviousRichArticle(String id, String name, PreviousAsset heroImage, List<PreviousAsset> videos) {
+            this.id = id;
+            this.name = name;
+            this.heroImage = heroImage;
+            this.videos = videos;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.fibanez.java8.clients.http;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.models.ArticleReference;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author fibanez
+ */
+public class NioHttpClientTest {
+
+    private StubHttpServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer();
+        server.respond("/articles/a1", "{\"id\":\"a1\",\"name\":\"Caf\\u00e9 \\\"news\\\"\",\"extra\":{\"x\":[1,true,null]},"
+                + "\"heroImageUrl\":\"http://images/i1.jpg\",\"videoUrls\":[\"http://videos/v1.mov\",\"http://videos/v2.mov\"]}");
+        server.respond("/images/i1.jpg", "{\"id\":\"i1.jpg\",\"altText\":\"An image\"}");
+        server.respond("/videos/v1.mov", "{\"id\":\"v1.mov\",\"caption\":\"First\"}");
+        server.respond("/videos/v2.mov", "{\"id\":\"v2.mov\",\"caption\":\"Second\"}");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void when_getModels_expect_parsedFromJson() throws Exception {
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            ArticleReference reference = new HttpArticleRepositoryClient(httpClient).getArticleReferenceForId("a1").get();
+            HttpAssetsServiceClient assets = new HttpAssetsServiceClient(httpClient);
+            Image image = assets.getImageById("i1.jpg").get();
+            Video video = assets.getVideoById("v2.mov").get();
+
+            assertThat(reference.getId(), is("a1"));
+            assertThat(reference.getName(), is("Caf\u00e9 \"news\""));
+            assertThat(reference.getHeroImageUrl(), is("http://images/i1.jpg"));
+            assertThat(new ArrayList<>(reference.getVideoUrls()), contains("http://videos/v1.mov", "http://videos/v2.mov"));
+            assertThat(image.getAltText(), is("An image"));
+            assertThat(video.getCaption(), is("Second"));
+        }
+    }
+
+    @Test
+    public void when_nullVideoUrls_expect_emptyList() throws Exception {
+        server.respond("/articles/a2", "{\"id\":\"a2\",\"name\":\"No videos\",\"videoUrls\":null}");
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            ArticleReference reference = new HttpArticleRepositoryClient(httpClient).getArticleReferenceForId("a2").get();
+
+            assertThat(reference.getVideoUrls().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void when_bodyRead_expect_readOnWorkerThread() throws Exception {
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            String thread = HttpClients.get(httpClient, "/images/i1.jpg", body -> Thread.currentThread().getName()).get();
+
+            assertThat(thread, startsWith("http-client-worker-"));
+        }
+    }
+
+    @Test
+    public void when_reusedConnectionClosedBeforeAnswer_expect_requestSentAgain() throws Exception {
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            HttpAssetsServiceClient assets = new HttpAssetsServiceClient(httpClient);
+            assertThat(assets.getVideoById("v1.mov").get().getCaption(), is("First"));
+
+            server.dropNextRequests(1);
+            assertThat(assets.getVideoById("v2.mov").get(2, TimeUnit.SECONDS).getCaption(), is("Second"));
+            assertThat(server.getConnections(), is(2));
+        }
+    }
+
+    @Test
+    public void when_newConnectionClosedBeforeAnswer_expect_failure() throws Exception {
+        server.dropNextRequests(1);
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            new HttpAssetsServiceClient(httpClient).getVideoById("v1.mov").get(2, TimeUnit.SECONDS);
+            fail("Expected the connection to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+    }
+
+    @Test
+    public void when_ipv6Host_expect_bracketedHostHeader() throws Exception {
+        assertThat(NioHttpClient.hostHeader("::1", 8080), is("[::1]:8080"));
+        assertThat(NioHttpClient.hostHeader("localhost", 8080), is("localhost:8080"));
+    }
+
+    @Test
+    public void when_sequentialRequests_expect_connectionReused() throws Exception {
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            HttpAssetsServiceClient assets = new HttpAssetsServiceClient(httpClient);
+            for (int i = 0; i < 20; i++) {
+                assertThat(assets.getVideoById("v1.mov").get().getCaption(), is("First"));
+            }
+
+            assertThat(server.getConnections(), is(1));
+            assertThat(httpClient.getConnectionsOpened(), is(1L));
+        }
+    }
+
+    @Test
+    public void when_poolFull_expect_requestsPipelined() throws Exception {
+        server.setDelay(5, TimeUnit.MILLISECONDS);
+        try (NioHttpClient httpClient = new NioHttpClient(config().setMaxConnections(2).setMaxPipelinedRequests(8))) {
+            HttpAssetsServiceClient assets = new HttpAssetsServiceClient(httpClient);
+            List<CompletableFuture<Video>> videos = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                videos.add(assets.getVideoById(i % 2 == 0 ? "v1.mov" : "v2.mov"));
+            }
+
+            for (int i = 0; i < 16; i++) {
+                assertThat(videos.get(i).get().getCaption(), is(i % 2 == 0 ? "First" : "Second"));
+            }
+            assertThat(server.getConnections(), is(2));
+        }
+    }
+
+    @Test
+    public void when_chunkedResponse_expect_bodyReassembled() throws Exception {
+        server.setChunked(true);
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            Image image = new HttpAssetsServiceClient(httpClient).getImageById("i1.jpg").get();
+
+            assertThat(image.getId(), is("i1.jpg"));
+            assertThat(image.getAltText(), is("An image"));
+        }
+    }
+
+    @Test
+    public void when_notFound_expect_httpStatusException() throws Exception {
+        try (NioHttpClient httpClient = new NioHttpClient(config())) {
+            new HttpAssetsServiceClient(httpClient).getImageById("missing").get();
+            fail("Expected a 404");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(HttpStatusException.class));
+            assertThat(((HttpStatusException) e.getCause()).getStatusCode(), is(404));
+        }
+    }
+
+    @Test
+    public void when_slowServer_expect_timeout() throws Exception {
+        server.setDelay(500, TimeUnit.MILLISECONDS);
+        try (NioHttpClient httpClient = new NioHttpClient(config().setRequestTimeout(50, TimeUnit.MILLISECONDS))) {
+            new HttpAssetsServiceClient(httpClient).getImageById("i1.jpg").get(2, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+    }
+
+    @Test
+    public void when_enrichOverHttp_expect_richArticle() throws Exception {
+        try (NioHttpClient articles = new NioHttpClient(config());
+             NioHttpClient assets = new NioHttpClient(config());
+             ArticleEnricherImpl enricher = new ArticleEnricherImpl(
+                     new HttpArticleRepositoryClient(articles), new HttpAssetsServiceClient(assets))) {
+            enricher.setInlineCompletion(true);
+
+            RichArticle article = enricher.enrichArticleWithId("a1").get(5, TimeUnit.SECONDS);
+
+            assertThat(article.getHeroImage().getAltText(), is("An image"));
+            List<Video> videos = new ArrayList<>(article.getVideos());
+            assertThat(videos.size(), is(2));
+            assertThat(videos.get(1).getCaption(), is("Second"));
+        }
+    }
+
+    private HttpClientConfig config() {
+        return new HttpClientConfig("127.0.0.1", server.getPort());
+    }
+}
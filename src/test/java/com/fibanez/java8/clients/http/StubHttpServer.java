@@ -0,0 +1,147 @@
+package com.fibanez.java8.clients.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/1.1 server answering canned JSON bodies, one thread per connection.
+ * Requests on a connection are answered in order, so pipelined requests work.
+ *
+ * @author fibanez
+ */
+class StubHttpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long delayMillis;
+    private volatile boolean chunked;
+    private final AtomicInteger requestsToDrop = new AtomicInteger();
+
+    StubHttpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        threads.execute(this::accept);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    void respond(String path, String json) {
+        bodies.put(path, json);
+    }
+
+    void setDelay(long delay, TimeUnit unit) {
+        this.delayMillis = unit.toMillis(delay);
+    }
+
+    void setChunked(boolean chunked) {
+        this.chunked = chunked;
+    }
+
+    /**
+     * Closes the connection without answering the next requests, as a server whose keep-alive timeout expired.
+     */
+    void dropNextRequests(int count) {
+        requestsToDrop.set(count);
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        threads.shutdownNow();
+    }
+
+    private void accept() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                sockets.add(socket);
+                threads.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // Closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = s.getOutputStream();
+            String requestLine;
+            while ((requestLine = in.readLine()) != null) {
+                if (requestLine.isEmpty()) {
+                    continue;
+                }
+                String header;
+                do {
+                    header = in.readLine();
+                } while (header != null && !header.isEmpty());
+                requests.incrementAndGet();
+                if (requestsToDrop.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                    return;
+                }
+
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                String body = bodies.get(requestLine.split(" ")[1]);
+                out.write(body == null ? notFound() : ok(body.getBytes(StandardCharsets.UTF_8)));
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Closed
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    private byte[] ok(byte[] body) throws IOException {
+        StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n");
+        if (chunked) {
+            int half = body.length / 2;
+            String first = new String(body, 0, half, StandardCharsets.ISO_8859_1);
+            String second = new String(body, half, body.length - half, StandardCharsets.ISO_8859_1);
+            response.append("Transfer-Encoding: chunked\r\n\r\n")
+                    .append(Integer.toHexString(half)).append("\r\n").append(first).append("\r\n")
+                    .append(Integer.toHexString(body.length - half)).append(";ext=1\r\n").append(second).append("\r\n")
+                    .append("0\r\n\r\n");
+        } else {
+            response.append("Content-Length: ").append(body.length).append("\r\n\r\n")
+                    .append(new String(body, StandardCharsets.ISO_8859_1));
+        }
+        return response.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] notFound() {
+        return "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,171 @@
+package com.fibanez.java8.cluster;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.models.RichArticle;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author fibanez
+ */
+public class ClusteredArticleEnricherTest {
+
+    private HashRing ring;
+
+    private ArticleEnricherImpl enricher1;
+
+    private ArticleEnricherImpl enricher2;
+
+    private InProcessPeerTransport transport;
+
+    private ClusteredArticleEnricher node1;
+
+    private String articleOfNode2;
+
+    @Before
+    public void setUp() throws Exception {
+        ring = new HashRing(50);
+        ring.addNode("node1");
+        ring.addNode("node2");
+        enricher1 = mock(ArticleEnricherImpl.class);
+        enricher2 = mock(ArticleEnricherImpl.class);
+        transport = new InProcessPeerTransport();
+        node1 = new ClusteredArticleEnricher("node1", ring, enricher1, transport);
+        transport.register(node1);
+        transport.register(new ClusteredArticleEnricher("node2", ring, enricher2, transport));
+
+        int i = 0;
+        while (!"node2".equals(ring.ownerOf("article" + i))) {
+            i++;
+        }
+        articleOfNode2 = "article" + i;
+    }
+
+    @Test
+    public void when_articleOfOtherNode_expect_forwardedToOwner() throws Exception {
+        RichArticle article = newArticle(articleOfNode2);
+        when(enricher2.enrichArticleWithId(articleOfNode2)).thenReturn(CompletableFuture.completedFuture(article));
+
+        assertThat(node1.enrichArticleWithId(articleOfNode2).get(), is(article));
+        verify(enricher1, never()).enrichArticleWithId(articleOfNode2);
+    }
+
+    @Test
+    public void when_articleOfLocalNode_expect_enrichedLocally() throws Exception {
+        ring.removeNode("node2");
+        RichArticle article = newArticle(articleOfNode2);
+        when(enricher1.enrichArticleWithId(articleOfNode2)).thenReturn(CompletableFuture.completedFuture(article));
+
+        assertThat(node1.enrichArticleWithId(articleOfNode2).get(), is(article));
+        verify(enricher2, never()).enrichArticleWithId(articleOfNode2);
+    }
+
+    @Test
+    public void when_ownerFails_expect_enrichedLocally() throws Exception {
+        RichArticle article = newArticle(articleOfNode2);
+        transport.unregister("node2");
+        when(enricher1.enrichArticleWithId(articleOfNode2)).thenReturn(CompletableFuture.completedFuture(article));
+
+        assertThat(node1.enrichArticleWithId(articleOfNode2).get(), is(article));
+    }
+
+    @Test
+    public void when_ownerFailsEnrichment_expect_failureWithoutLocalRetry() throws Exception {
+        CompletableFuture<RichArticle> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("No article found"));
+        when(enricher2.enrichArticleWithId(articleOfNode2)).thenReturn(failed);
+
+        assertThat(node1.enrichArticleWithId(articleOfNode2).isCompletedExceptionally(), is(true));
+        verify(enricher1, never()).enrichArticleWithId(articleOfNode2);
+    }
+
+    @Test
+    public void when_concurrentEnrichmentsOfSameArticle_expect_coalesced() throws Exception {
+        ring.removeNode("node2");
+        CompletableFuture<RichArticle> enrichment = new CompletableFuture<>();
+        when(enricher1.enrichArticleWithId(articleOfNode2)).thenReturn(enrichment);
+
+        CompletableFuture<RichArticle> first = node1.enrichArticleWithId(articleOfNode2);
+        CompletableFuture<RichArticle> second = node1.enrichLocally(articleOfNode2);
+        RichArticle article = newArticle(articleOfNode2);
+        enrichment.complete(article);
+
+        assertThat(first.get(), is(article));
+        assertThat(second.get(), is(article));
+        verify(enricher1, times(1)).enrichArticleWithId(articleOfNode2);
+        assertThat(node1.getInFlightEnrichments(), is(0));
+    }
+
+    @Test
+    public void when_oneOfTwoCallersCancels_expect_enrichmentKept() throws Exception {
+        ring.removeNode("node2");
+        CompletableFuture<RichArticle> enrichment = new CompletableFuture<>();
+        when(enricher1.enrichArticleWithId(articleOfNode2)).thenReturn(enrichment);
+
+        CompletableFuture<RichArticle> first = node1.enrichArticleWithId(articleOfNode2);
+        CompletableFuture<RichArticle> second = node1.enrichArticleWithId(articleOfNode2);
+        first.cancel(true);
+        assertThat(enrichment.isCancelled(), is(false));
+
+        second.cancel(true);
+        assertThat(enrichment.isCancelled(), is(true));
+    }
+
+    @Test
+    public void when_ownerCache_expect_servedWithoutEnriching() throws Exception {
+        ring.removeNode("node2");
+        RichArticle article = newArticle(articleOfNode2);
+        when(enricher1.enrichArticleWithId(articleOfNode2)).thenReturn(CompletableFuture.completedFuture(article));
+        node1.setOwnerCache(new NearCache(10, 1, TimeUnit.MINUTES));
+
+        node1.enrichArticleWithId(articleOfNode2).get();
+        assertThat(node1.enrichArticleWithId(articleOfNode2).get(), is(article));
+        verify(enricher1, times(1)).enrichArticleWithId(articleOfNode2);
+    }
+
+    @Test
+    public void when_blankArticleId_expect_failedFuture() throws Exception {
+        CompletableFuture<RichArticle> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("No article found"));
+        when(enricher1.enrichArticleWithId(null)).thenReturn(failed);
+
+        assertThat(node1.enrichArticleWithId(null).isCompletedExceptionally(), is(true));
+        assertThat(node1.isOwner(null), is(false));
+    }
+
+    @Test
+    public void when_hotArticleOfOtherNode_expect_servedFromNearCache() throws Exception {
+        RichArticle article = newArticle(articleOfNode2);
+        when(enricher2.enrichArticleWithId(articleOfNode2)).thenReturn(CompletableFuture.completedFuture(article));
+        node1.setNearCache(new NearCache(10, 1, TimeUnit.MINUTES), articleId -> true);
+
+        node1.enrichArticleWithId(articleOfNode2).get();
+        assertThat(node1.enrichArticleWithId(articleOfNode2).get(), is(article));
+        verify(enricher2, times(1)).enrichArticleWithId(articleOfNode2);
+    }
+
+    @Test
+    public void when_forwardedFutureCancelled_expect_ownerFutureCancelled() throws Exception {
+        CompletableFuture<RichArticle> ownerFuture = new CompletableFuture<>();
+        when(enricher2.enrichArticleWithId(articleOfNode2)).thenReturn(ownerFuture);
+
+        node1.enrichArticleWithId(articleOfNode2).cancel(true);
+        assertThat(ownerFuture.isCancelled(), is(true));
+    }
+
+    private RichArticle newArticle(String articleId) {
+        return new RichArticle(articleId, "name", null, Collections.emptyList());
+    }
+}
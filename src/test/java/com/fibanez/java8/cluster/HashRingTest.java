@@ -0,0 +1,87 @@
+package com.fibanez.java8.cluster;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class HashRingTest {
+
+    private static final int KEYS = 10000;
+
+    @Test
+    public void when_emptyRing_expect_noOwner() throws Exception {
+        HashRing ring = new HashRing(10);
+        assertThat(ring.ownerOf("articleId"), is(nullValue()));
+    }
+
+    @Test
+    public void when_sameKey_expect_sameOwner() throws Exception {
+        HashRing ring = newRing(3);
+        assertThat(ring.ownerOf("articleId"), is(ring.ownerOf("articleId")));
+    }
+
+    @Test
+    public void when_nodeAdded_expect_keysMovedOnlyToNewNode() throws Exception {
+        HashRing ring = newRing(4);
+        Map<String, String> owners = owners(ring);
+
+        ring.addNode("node4");
+        int moved = 0;
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            String owner = ring.ownerOf(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                assertThat(owner, is("node4"));
+                moved++;
+            }
+        }
+        assertThat(moved, lessThan(KEYS / 3));
+    }
+
+    @Test
+    public void when_nodeAddedAndRemoved_expect_sameOwners() throws Exception {
+        HashRing ring = newRing(4);
+        Map<String, String> owners = owners(ring);
+
+        ring.addNode("node4");
+        ring.removeNode("node4");
+        assertThat(owners(ring), is(owners));
+    }
+
+    @Test
+    public void when_nodeRemoved_expect_itsKeysMovedToOtherNodes() throws Exception {
+        HashRing ring = newRing(4);
+        Map<String, String> owners = owners(ring);
+
+        ring.removeNode("node0");
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            if (!entry.getValue().equals("node0")) {
+                assertThat(ring.ownerOf(entry.getKey()), is(entry.getValue()));
+            }
+        }
+    }
+
+    private HashRing newRing(int nodes) {
+        HashRing ring = new HashRing(100);
+        for (int i = 0; i < nodes; i++) {
+            ring.addNode("node" + i);
+        }
+        return ring;
+    }
+
+    private Map<String, String> owners(HashRing ring) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owners.put("article" + i, ring.ownerOf("article" + i));
+        }
+        return owners;
+    }
+}
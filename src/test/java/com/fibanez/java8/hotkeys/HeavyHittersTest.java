@@ -0,0 +1,87 @@
+package com.fibanez.java8.hotkeys;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class HeavyHittersTest {
+
+    @Test
+    public void when_keyRecorded_expect_estimateNotLowerThanCount() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("key" + (i % 100));
+        }
+        assertThat(sketch.estimate("key7"), greaterThanOrEqualTo(10L));
+    }
+
+    @Test
+    public void when_sketchDecays_expect_halfEstimate() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        for (int i = 0; i < 10; i++) {
+            sketch.add("key");
+        }
+        sketch.decay();
+        assertThat(sketch.estimate("key"), is(5L));
+    }
+
+    @Test
+    public void when_keysCollideOnHashCode_expect_countedApart() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        for (int i = 0; i < 10; i++) {
+            sketch.add("Aa");
+        }
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+        assertThat(sketch.estimate("BB"), lessThan(10L));
+    }
+
+    @Test
+    public void when_fewKeysRequestedMost_expect_theyAreTopK() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(3, 1024, 4, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10000; i++) {
+            heavyHitters.record(i % 2 == 0 ? "hot" + (i % 3) : "cold" + i);
+        }
+
+        List<String> top = heavyHitters.topK().stream().map(HotKey::getKey).collect(Collectors.toList());
+        assertThat(top, containsInAnyOrder("hot0", "hot1", "hot2"));
+        assertThat(heavyHitters.isHot("hot1"), is(true));
+        assertThat(heavyHitters.isHot("cold1"), is(false));
+    }
+
+    @Test
+    public void when_lessKeysThanK_expect_allKeys() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 1024, 4, 1, TimeUnit.HOURS);
+        heavyHitters.record("key1");
+        heavyHitters.record("key2");
+        assertThat(heavyHitters.topK(), hasSize(2));
+    }
+
+    @Test
+    public void when_keySeenOnce_expect_notHot() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 1024, 4, 1, TimeUnit.HOURS);
+        heavyHitters.record("key1");
+        assertThat(heavyHitters.isHot("key1"), is(false));
+        heavyHitters.record("key1");
+        assertThat(heavyHitters.isHot("key1"), is(true));
+    }
+
+    @Test
+    public void when_disabled_expect_nothingTracked() throws Exception {
+        HeavyHitters heavyHitters = HeavyHitters.disabled();
+        heavyHitters.record("key");
+        assertThat(heavyHitters.topK(), hasSize(0));
+        assertThat(heavyHitters.isHot("key"), is(false));
+    }
+}
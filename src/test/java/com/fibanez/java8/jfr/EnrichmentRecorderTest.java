@@ -0,0 +1,83 @@
+package com.fibanez.java8.jfr;
+
+import com.fibanez.java8.models.RichArticle;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class EnrichmentRecorderTest {
+
+    @Test
+    public void when_disabled_expect_noEnrichmentEvent() throws Exception {
+        EnrichmentRecorder recorder = EnrichmentRecorder.disabled();
+        assertThat(recorder.beginEnrichment("articleId"), is(EnrichmentRecorder.Enrichment.NONE));
+    }
+
+    @Test
+    public void when_notRecording_expect_noEnrichmentEvent() throws Exception {
+        EnrichmentRecorder recorder = EnrichmentRecorder.flightRecorder(1);
+        assertThat(recorder.beginEnrichment("articleId"), is(EnrichmentRecorder.Enrichment.NONE));
+    }
+
+    @Test
+    public void when_recording_expect_enrichmentEvent() throws Exception {
+        EnrichmentRecorder recorder = EnrichmentRecorder.flightRecorder(1);
+        RichArticle richArticle = new RichArticle("articleId", "name", null, Collections.emptyList());
+
+        List<RecordedEvent> events = record(() -> {
+            EnrichmentRecorder.Enrichment enrichment = recorder.beginEnrichment("articleId");
+            enrichment.articleFetched(3);
+            enrichment.end(richArticle, null);
+        });
+
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getEventType().getName(), is("com.fibanez.java8.Enrichment"));
+        assertThat(events.get(0).getString("articleId"), is("articleId"));
+        assertThat(events.get(0).getInt("videoCount"), is(3));
+        assertThat(events.get(0).getString("outcome"), is("SUCCESS"));
+    }
+
+    @Test
+    public void when_recordingFailedAssetCall_expect_assetCallEvent() throws Exception {
+        EnrichmentRecorder recorder = EnrichmentRecorder.flightRecorder(1);
+
+        List<RecordedEvent> events = record(() -> {
+            CompletableFuture<Object> assetFuture = recorder.recordAssetCall("image", "imageId", new CompletableFuture<>());
+            assetFuture.completeExceptionally(new RuntimeException("HTTP call failed!"));
+        });
+
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getString("assetId"), is("imageId"));
+        assertThat(events.get(0).getString("outcome"), is("FAILED"));
+    }
+
+    private List<RecordedEvent> record(Runnable runnable) throws Exception {
+        Path file = Files.createTempFile("enrichment", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.fibanez.java8.Enrichment").withThreshold(Duration.ZERO);
+            recording.enable("com.fibanez.java8.AssetCall").withThreshold(Duration.ZERO);
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.fibanez.java8.json;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class JsonReaderTest {
+
+    @Test
+    public void when_escapedString_expect_unescaped() throws Exception {
+        JsonReader reader = reader("[\"tab\\there \\\"quoted\\\" \\u00e9\\ud83d\\ude00\", \"\u00f1and\u00fa\", null]");
+
+        reader.beginArray();
+        assertThat(reader.hasNext(), is(true));
+        assertThat(reader.nextString(), is("tab\there \"quoted\" \u00e9\ud83d\ude00"));
+        assertThat(reader.hasNext(), is(true));
+        assertThat(reader.nextString(), is("\u00f1and\u00fa"));
+        assertThat(reader.hasNext(), is(true));
+        assertThat(reader.nextString(), nullValue());
+        assertThat(reader.hasNext(), is(false));
+        reader.endArray();
+    }
+
+    @Test
+    public void when_unknownMembers_expect_skipped() throws Exception {
+        JsonReader reader = reader("{\"a\": {\"b\": [1, 2.5e3, {\"c\": \"}\"}]}, \"d\": false, \"id\": \"x\"}");
+
+        String id = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("id")) {
+                id = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        assertThat(id, is("x"));
+    }
+
+    @Test
+    public void when_nullValue_expect_consumedByNextNull() throws Exception {
+        JsonReader reader = reader("[null, []]");
+
+        reader.beginArray();
+        assertThat(reader.hasNext(), is(true));
+        assertThat(reader.nextNull(), is(true));
+        assertThat(reader.hasNext(), is(true));
+        assertThat(reader.nextNull(), is(false));
+        reader.beginArray();
+        assertThat(reader.hasNext(), is(false));
+        reader.endArray();
+        assertThat(reader.hasNext(), is(false));
+        reader.endArray();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void when_unterminatedString_expect_exception() throws Exception {
+        reader("\"x").nextString();
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,88 @@
+package com.fibanez.java8.json;
+
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class RichArticleJsonTest {
+
+    @Test
+    public void when_toJson_expect_article() throws Exception {
+        RichArticle article = new RichArticle("a1", "name", new Image("i1.jpg", "alt"),
+                Arrays.asList(new Video("v1.mov", "first"), new Video("v2.mov", null)));
+
+        assertThat(string(RichArticleJson.toJson(article)), is("{\"id\":\"a1\",\"name\":\"name\","
+                + "\"heroImage\":{\"id\":\"i1.jpg\",\"altText\":\"alt\"},"
+                + "\"videos\":[{\"id\":\"v1.mov\",\"caption\":\"first\"},{\"id\":\"v2.mov\",\"caption\":null}]}"));
+    }
+
+    @Test
+    public void when_nullVideos_expect_null() throws Exception {
+        RichArticle article = new RichArticle("a1", "name", null, null);
+
+        assertThat(string(RichArticleJson.toJson(article)), is("{\"id\":\"a1\",\"name\":\"name\","
+                + "\"heroImage\":null,\"videos\":null}"));
+    }
+
+    @Test
+    public void when_specialChars_expect_escapedAndReadBack() throws Exception {
+        String name = "\"quoted\" back\\slash\ttab\nline\u0001 caf\u00e9 \u20ac \ud83d\ude00";
+        RichArticle article = new RichArticle("a1", name, null, Collections.<Video>emptyList());
+
+        ByteBuffer json = RichArticleJson.toJson(article);
+        assertThat(string(json.duplicate()), is("{\"id\":\"a1\",\"name\":"
+                + "\"\\\"quoted\\\" back\\\\slash\\ttab\\nline\\u0001 caf\u00e9 \u20ac \ud83d\ude00\","
+                + "\"heroImage\":null,\"videos\":[]}"));
+
+        JsonReader reader = new JsonReader(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        reader.beginObject();
+        reader.nextName();
+        reader.nextString();
+        reader.hasNext();
+        reader.nextName();
+        assertThat(reader.nextString(), is(name));
+    }
+
+    @Test
+    public void when_largeArticleToStream_expect_sameAsBuffer() throws Exception {
+        List<Video> videos = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            videos.add(new Video("video" + i + ".mov", "caption \u00f1 " + i));
+        }
+        RichArticle article = new RichArticle("a1", "name", new Image("i1.jpg", "alt"), videos);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        RichArticleJson.write(article, out);
+
+        assertThat(out.toString("UTF-8"), is(string(RichArticleJson.toJson(article))));
+    }
+
+    @Test
+    public void when_list_expect_arrayWithNulls() throws Exception {
+        RichArticle article = new RichArticle("a1", "name", null, Collections.<Video>emptyList());
+
+        assertThat(string(RichArticleJson.toJson(Arrays.asList(article, null))),
+                is("[{\"id\":\"a1\",\"name\":\"name\",\"heroImage\":null,\"videos\":[]},null]"));
+    }
+
+    private static String string(ByteBuffer json) {
+        byte[] bytes = new byte[json.remaining()];
+        json.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
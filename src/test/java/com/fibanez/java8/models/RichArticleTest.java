@@ -0,0 +1,58 @@
+package com.fibanez.java8.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class RichArticleTest {
+
+    @Test
+    public void when_equalStrings_expect_sameInstance() throws Exception {
+        RichArticle first = new RichArticle(new String("articleId"), new String("name"),
+                new Image(new String("image.jpg"), new String("alt")), null);
+        RichArticle second = new RichArticle(new String("articleId"), new String("name"),
+                new Image(new String("image.jpg"), new String("alt")), null);
+
+        assertThat(second.getId(), is(sameInstance(first.getId())));
+        assertThat(second.getHeroImage().getId(), is(sameInstance(first.getHeroImage().getId())));
+        assertThat(second.getName(), is(sameInstance(first.getName())));
+        assertThat(second.getHeroImage().getAltText(), is(sameInstance(first.getHeroImage().getAltText())));
+    }
+
+    @Test
+    public void when_equalCaptions_expect_sameInstance() throws Exception {
+        Video first = new Video(new String("first.mov"), new String("caption"));
+        Video second = new Video(new String("second.mov"), new String("caption"));
+
+        assertThat(second.getCaption(), is(sameInstance(first.getCaption())));
+    }
+
+    @Test
+    public void when_nullVideos_expect_nullVideos() throws Exception {
+        RichArticle article = new RichArticle("articleId", "name", null, null);
+        assertThat(article.getVideos(), is(nullValue()));
+    }
+
+    @Test
+    public void when_videosModified_expect_copyUnchanged() throws Exception {
+        Video video = new Video("video.mov", "caption");
+        List<Video> videos = new ArrayList<>(Arrays.asList(video));
+        RichArticle article = new RichArticle("articleId", "name", null, videos);
+        videos.add(new Video("other.mov", "caption"));
+
+        assertThat(article.getVideos(), hasSize(1));
+        assertThat(article.getVideos(), contains(video));
+    }
+}
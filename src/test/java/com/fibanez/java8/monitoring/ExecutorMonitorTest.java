@@ -0,0 +1,180 @@
+package com.fibanez.java8.monitoring;
+
+import com.fibanez.java8.utils.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class ExecutorMonitorTest {
+
+    private InstrumentedExecutor executor;
+
+    private CompletableFuture<String> neverCompleted;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new InstrumentedExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        neverCompleted = new CompletableFuture<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        neverCompleted.complete("done");
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void when_idle_expect_healthy() throws Exception {
+        ExecutorMonitor monitor = new ExecutorMonitor(executor, SaturationThresholds.defaults());
+
+        assertThat(monitor.isSaturated(), is(false));
+        assertThat(monitor.getHealthReport(), is("OK"));
+    }
+
+    @Test
+    public void when_threadsBlockedAndTasksQueued_expect_saturated() throws Exception {
+        ExecutorMonitor monitor = new ExecutorMonitor(executor, new SaturationThresholds(0, 1, 0, 0));
+        CountDownLatch blocked = new CountDownLatch(2);
+        for (int i = 0; i < 4; i++) {
+            Futures.toCompletableFuture(signallingGet(blocked), executor, executor.getBlockedThreadCounter());
+        }
+        assertThat(blocked.await(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(monitor.getActiveThreads(), is(2));
+        assertThat(monitor.getQueuedTasks(), is(2));
+        assertThat(monitor.getThreadsBlockedInFutureGet(), is(2));
+        assertThat(monitor.isSaturated(), is(true));
+        assertThat(monitor.getHealthReport(), containsString("queued tasks"));
+    }
+
+    @Test
+    public void when_tasksExecuted_expect_waitAndRunTimes() throws Exception {
+        ExecutorMonitor monitor = new ExecutorMonitor(executor, SaturationThresholds.defaults());
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> sleep(20));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertThat(executor.getTimedTasks(), is(4L));
+        assertThat(monitor.getAverageRunMillis(), greaterThan(10.0));
+        assertThat(monitor.getAverageWaitMillis(), greaterThan(0.0));
+    }
+
+    @Test
+    public void when_threadsBlockedInOtherExecutor_expect_notCounted() throws Exception {
+        ExecutorMonitor monitor = new ExecutorMonitor(executor, SaturationThresholds.defaults());
+        InstrumentedExecutor other = InstrumentedExecutor.newCachedThreadPool();
+        CountDownLatch blocked = new CountDownLatch(2);
+        try {
+            Futures.toCompletableFuture(signallingGet(blocked), other, other.getBlockedThreadCounter());
+            Futures.toCompletableFuture(signallingGet(blocked), executor, executor.getBlockedThreadCounter());
+            assertThat(blocked.await(5, TimeUnit.SECONDS), is(true));
+
+            assertThat(monitor.getThreadsBlockedInFutureGet(), is(1));
+            assertThat(other.getBlockedThreadCounter().get(), is(1));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void when_directHandoff_expect_queueNotChecked() throws Exception {
+        InstrumentedExecutor cached = InstrumentedExecutor.newCachedThreadPool();
+        try {
+            ExecutorMonitor monitor = new ExecutorMonitor(cached, new SaturationThresholds(0, -1, 0, -1));
+            assertThat(cached.isDirectHandoff(), is(true));
+            assertThat(monitor.isSaturated(), is(false));
+        } finally {
+            cached.shutdownNow();
+        }
+    }
+
+    @Test
+    public void when_noTaskStarts_expect_recentWaitDecays() throws Exception {
+        InstrumentedExecutor single = new InstrumentedExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            single.execute(() -> await(release));
+            single.execute(() -> { });
+            release.countDown();
+            single.shutdown();
+            single.awaitTermination(1, TimeUnit.SECONDS);
+            long now = System.nanoTime();
+            long recentWait = single.getRecentWaitNanos(now);
+
+            assertThat(recentWait, greaterThan(0L));
+            assertThat(single.getRecentWaitNanos(now + TimeUnit.MILLISECONDS.toNanos(1100)), lessThan(recentWait / 2 + 1));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a future which counts down the latch once a thread blocks on it, never completed
+     * before the test ends
+     */
+    private Future<String> signallingGet(CountDownLatch blocked) {
+        return new Future<String>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return neverCompleted.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return neverCompleted.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return neverCompleted.isDone();
+            }
+
+            @Override
+            public String get() throws InterruptedException, ExecutionException {
+                blocked.countDown();
+                return neverCompleted.get();
+            }
+
+            @Override
+            public String get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+                blocked.countDown();
+                return neverCompleted.get(timeout, unit);
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
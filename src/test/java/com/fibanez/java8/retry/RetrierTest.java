@@ -0,0 +1,183 @@
+package com.fibanez.java8.retry;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.clients.http.HttpStatusException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fibanez
+ */
+public class RetrierTest {
+
+    private static ScheduledExecutorService scheduler;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void when_failsTwice_expect_valueAfterTwoRetries() throws Exception {
+        Retrier retrier = new Retrier(new RetryPolicy(3, 1, 10), RetryBudget.unlimited(), scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = retrier.execute(() ->
+                calls.incrementAndGet() < 3 ? failedFuture() : CompletableFuture.completedFuture("value"));
+
+        assertThat(result.get(), is("value"));
+        assertThat(calls.get(), is(3));
+        assertThat(retrier.getRetriesAttempted(), is(2L));
+    }
+
+    @Test
+    public void when_alwaysFails_expect_maxAttempts() throws Exception {
+        Retrier retrier = new Retrier(new RetryPolicy(3, 1, 10), RetryBudget.unlimited(), scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = retrier.execute(() -> {
+            calls.incrementAndGet();
+            return failedFuture();
+        });
+
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            // expected
+        }
+        assertThat(calls.get(), is(3));
+    }
+
+    @Test
+    public void when_budgetSpent_expect_retriesSuppressed() throws Exception {
+        Retrier retrier = new Retrier(new RetryPolicy(3, 1, 10), new RetryBudget(10, 1), scheduler);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                retrier.execute(() -> RetrierTest.<String>failedFuture()).get();
+            } catch (ExecutionException e) {
+                // expected
+            }
+        }
+        assertThat(retrier.getRetriesAttempted(), is(1L));
+        assertThat(retrier.getRetriesSuppressed(), is(3L));
+    }
+
+    @Test
+    public void when_cancelled_expect_noMoreAttempts() throws Exception {
+        Retrier retrier = new Retrier(new RetryPolicy(5, 200, 200), RetryBudget.unlimited(), scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = retrier.execute(() -> {
+            calls.incrementAndGet();
+            return failedFuture();
+        });
+        result.cancel(true);
+        // Runs after the retry would have, the single scheduler thread runs its tasks by due time
+        scheduler.schedule(() -> null, 400, TimeUnit.MILLISECONDS).get();
+
+        assertTrue(result.isCancelled());
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void when_schedulerShutDown_expect_failureInsteadOfHang() throws Exception {
+        ScheduledExecutorService stopped = Executors.newSingleThreadScheduledExecutor();
+        stopped.shutdown();
+        Retrier retrier = new Retrier(new RetryPolicy(3, 1, 10), RetryBudget.unlimited(), stopped);
+
+        CompletableFuture<String> result = retrier.execute(RetrierTest::failedFuture);
+
+        assertTrue(result.isCompletedExceptionally());
+        assertThat(retrier.getRetriesAttempted(), is(0L));
+    }
+
+    @Test
+    public void when_wrappedCancellation_expect_notRetryable() throws Exception {
+        RetryPolicy policy = new RetryPolicy(3, 1, 10);
+
+        assertFalse(policy.isRetryable(new RuntimeException(new CancellationException())));
+        assertFalse(policy.isRetryable(new CompletionException(new RuntimeException(new CancellationException()))));
+        assertTrue(policy.isRetryable(new RuntimeException("HTTP call failed!")));
+    }
+
+    @Test
+    public void when_notFound_expect_singleAttempt() throws Exception {
+        Retrier retrier = new Retrier(new RetryPolicy(3, 1, 10), RetryBudget.unlimited(), scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = retrier.execute(() -> {
+            calls.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new RuntimeException(new HttpStatusException("/articles/a1", 404)));
+            return future;
+        });
+
+        assertTrue(result.isCompletedExceptionally());
+        assertThat(calls.get(), is(1));
+        assertThat(retrier.getRetriesAttempted(), is(0L));
+    }
+
+    @Test
+    public void when_permanentFailure_expect_notRetryable() throws Exception {
+        RetryPolicy policy = new RetryPolicy(3, 1, 10);
+
+        assertFalse(policy.isRetryable(new CompletionException(new HttpStatusException("/images/i1", 400))));
+        assertFalse(policy.isRetryable(new RuntimeException(ArticleEnricherImpl.NO_ARTICLE_FOUND)));
+        assertTrue(policy.isRetryable(new HttpStatusException("/videos/v1", 503)));
+        assertTrue(policy.isRetryable(new HttpStatusException("/videos/v1", 429)));
+        assertTrue(new RetryPolicy(3, 1, 10, e -> true).isRetryable(new HttpStatusException("/articles/a1", 404)));
+    }
+
+    @Test
+    public void when_noRetries_expect_singleAttempt() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = Retrier.noRetries().execute(() -> {
+            calls.incrementAndGet();
+            return failedFuture();
+        });
+
+        assertTrue(result.isCompletedExceptionally());
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void when_delay_expect_betweenZeroAndBackoff() throws Exception {
+        RetryPolicy policy = new RetryPolicy(5, 10, 25);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.delayMillis(1), lessThanOrEqualTo(10L));
+            assertThat(policy.delayMillis(4), lessThanOrEqualTo(25L));
+            assertThat(policy.delayMillis(4), greaterThanOrEqualTo(0L));
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new RuntimeException("HTTP call failed!"));
+        return future;
+    }
+}
@@ -0,0 +1,287 @@
+package com.fibanez.java8.server;
+
+import com.fibanez.java8.ArticleEnricherImpl;
+import com.fibanez.java8.clients.AssetsServiceClient;
+import com.fibanez.java8.clients.http.HttpClientConfig;
+import com.fibanez.java8.clients.http.HttpResponse;
+import com.fibanez.java8.clients.http.HttpStatusException;
+import com.fibanez.java8.clients.http.NioHttpClient;
+import com.fibanez.java8.models.ArticleReference;
+import com.fibanez.java8.models.Image;
+import com.fibanez.java8.models.RichArticle;
+import com.fibanez.java8.models.Video;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fibanez
+ */
+public class EnricherHttpServerTest {
+
+    private final Map<String, CompletableFuture<RichArticle>> enrichments = new ConcurrentHashMap<>();
+
+    private EnricherHttpServer server;
+
+    private NioHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EnricherHttpServer(articleId -> enrichment(articleId),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2).start();
+        client = new NioHttpClient(new HttpClientConfig("127.0.0.1", server.getPort())
+                .setMaxConnections(1).setMaxPipelinedRequests(16));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void when_getArticle_expect_jsonWhenEnriched() throws Exception {
+        CompletableFuture<HttpResponse> response = client.get("/articles/a1");
+        assertTrue(eventually(() -> enrichments.containsKey("a1")));
+        assertThat(response.isDone(), is(false));
+
+        enrichment("a1").complete(article("a1"));
+
+        HttpResponse completed = response.get(5, TimeUnit.SECONDS);
+        assertThat(completed.getStatusCode(), is(200));
+        assertThat(body(completed), is("{\"id\":\"a1\",\"name\":\"Article \\\"a1\\\"\","
+                + "\"heroImage\":{\"id\":\"a1.jpg\",\"altText\":\"alt\"},"
+                + "\"videos\":[{\"id\":\"a1.mov\",\"caption\":\"caption\"}]}"));
+    }
+
+    @Test
+    public void when_batch_expect_articlesInOrderAndNullForFailures() throws Exception {
+        enrichment("b1").complete(article("b1"));
+        enrichment("b2").completeExceptionally(new IllegalStateException("failed"));
+        enrichment("b3").complete(article("b3"));
+
+        HttpResponse response = client.get("/articles?ids=b3,b2,b1").get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getStatusCode(), is(200));
+        String body = body(response);
+        assertTrue(body.startsWith("[{\"id\":\"b3\""));
+        assertTrue(body.contains("},null,{\"id\":\"b1\""));
+    }
+
+    @Test
+    public void when_pipelinedCompletedOutOfOrder_expect_responsesInRequestOrder() throws Exception {
+        List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add("p" + i);
+            responses.add(client.get("/articles/p" + i));
+        }
+        assertTrue(eventually(() -> enrichments.size() == 10));
+
+        Collections.reverse(ids);
+        for (String id : ids) {
+            enrichment(id).complete(article(id));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(body(responses.get(i).get(5, TimeUnit.SECONDS)).startsWith("{\"id\":\"p" + i + "\""));
+        }
+        assertThat(client.getConnectionsOpened(), is(1L));
+        assertThat(server.getOpenConnections(), is(1));
+    }
+
+    @Test
+    public void when_manyPendingRequests_expect_noThreadHeld() throws Exception {
+        try (NioHttpClient pooled = new NioHttpClient(new HttpClientConfig("127.0.0.1", server.getPort())
+                .setMaxConnections(100))) {
+            List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                responses.add(pooled.get("/articles/m" + i));
+            }
+            assertTrue(eventually(() -> enrichments.size() == 100));
+            assertThat(eventLoopThreads(), is(2L));
+
+            for (int i = 0; i < 500; i++) {
+                enrichment("m" + i).complete(article("m" + i));
+            }
+
+            for (CompletableFuture<HttpResponse> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS).getStatusCode(), is(200));
+            }
+            assertThat(server.getOpenConnections(), is(100));
+        }
+    }
+
+    @Test
+    public void when_clientDisconnects_expect_enrichmentCancelled() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /articles/c1 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(eventually(() -> enrichments.containsKey("c1")));
+        }
+
+        assertTrue(eventually(() -> enrichment("c1").isCancelled()));
+    }
+
+    @Test
+    public void when_http10KeepAlive_expect_http10ResponsesOnSameConnection() throws Exception {
+        enrichment("k1").complete(article("k1"));
+        enrichment("k2").complete(article("k2"));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write("GET /articles/k1 HTTP/1.0\r\nConnection: keep-alive\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String first = readResponse(in);
+            assertTrue(first.startsWith("HTTP/1.0 200 "));
+            assertTrue(first.contains("Connection: keep-alive\r\n"));
+
+            out.write("GET /articles/k2 HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String second = readResponse(in);
+            assertTrue(second.startsWith("HTTP/1.0 200 "));
+            assertTrue(second.contains("Connection: close\r\n"));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void when_plusInArticleId_expect_keptInId() throws Exception {
+        enrichment("a+b").complete(article("a+b"));
+
+        HttpResponse response = client.get("/articles/a+b").get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getStatusCode(), is(200));
+        assertTrue(body(response).startsWith("{\"id\":\"a+b\""));
+        assertThat(client.get("/articles/a%2").get(5, TimeUnit.SECONDS).getStatusCode(), is(400));
+    }
+
+    @Test
+    public void when_blockingExecutorFull_expect_serviceUnavailable() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        EnricherHttpServer blocking = new EnricherHttpServer(articleId -> {
+            calls.incrementAndGet();
+            return new FutureTask<>(() -> null);
+        }, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+        blocking.setBlockingThreads(1, 1);
+        try (EnricherHttpServer started = blocking.start();
+             NioHttpClient blockingClient = new NioHttpClient(new HttpClientConfig("127.0.0.1", started.getPort()))) {
+            // One waiting in the only thread, one in the queue
+            blockingClient.get("/articles/w1");
+            blockingClient.get("/articles/w2");
+            assertTrue(eventually(() -> calls.get() == 2));
+
+            HttpResponse rejected = blockingClient.get("/articles/w3").get(5, TimeUnit.SECONDS);
+
+            assertThat(rejected.getStatusCode(), is(503));
+        }
+    }
+
+    @Test
+    public void when_articleNotFoundUpstreamWithBlockingWaits_expect_notFound() throws Exception {
+        AssetsServiceClient noAssets = new AssetsServiceClient() {
+            @Override
+            public Future<Image> getImageById(String id) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public Future<Video> getVideoById(String id) {
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        try (ArticleEnricherImpl articleEnricher = new ArticleEnricherImpl(articleId -> {
+                 CompletableFuture<ArticleReference> notFound = new CompletableFuture<>();
+                 notFound.completeExceptionally(new HttpStatusException("/articles/" + articleId, 404));
+                 return notFound;
+             }, noAssets);
+             EnricherHttpServer started = new EnricherHttpServer(articleEnricher,
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1).start();
+             NioHttpClient notFoundClient = new NioHttpClient(new HttpClientConfig("127.0.0.1", started.getPort()))) {
+
+            assertThat(notFoundClient.get("/articles/unknown").get(5, TimeUnit.SECONDS).getStatusCode(), is(404));
+        }
+    }
+
+    @Test
+    public void when_unknownPath_expect_notFound() throws Exception {
+        assertThat(client.get("/unknown").get(5, TimeUnit.SECONDS).getStatusCode(), is(404));
+        assertThat(client.get("/articles?ids=").get(5, TimeUnit.SECONDS).getStatusCode(), is(400));
+    }
+
+    private CompletableFuture<RichArticle> enrichment(String articleId) {
+        return enrichments.computeIfAbsent(articleId, id -> new CompletableFuture<>());
+    }
+
+    private static RichArticle article(String id) {
+        return new RichArticle(id, "Article \"" + id + "\"", new Image(id + ".jpg", "alt"),
+                Collections.singletonList(new Video(id + ".mov", "caption")));
+    }
+
+    /**
+     * @return head and body of the next response, whose body has a Content-Length
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        String head = "";
+        while (!head.endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            response.write(b);
+            head = new String(response.toByteArray(), StandardCharsets.US_ASCII);
+        }
+        int lengthStart = head.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(head.substring(lengthStart, head.indexOf("\r\n", lengthStart)));
+        for (int i = 0; i < length; i++) {
+            response.write(in.read());
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String body(HttpResponse response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private static long eventLoopThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("enricher-http-"))
+                .count();
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+}
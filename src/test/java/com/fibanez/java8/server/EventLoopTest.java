@@ -0,0 +1,85 @@
+package com.fibanez.java8.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fibanez
+ */
+public class EventLoopTest {
+
+    private EventLoop eventLoop;
+
+    @Before
+    public void setUp() throws Exception {
+        eventLoop = new EventLoop("event-loop-test", TimeUnit.SECONDS.toNanos(60));
+        eventLoop.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        eventLoop.shutdown();
+        eventLoop.join();
+    }
+
+    @Test
+    public void when_taskThrows_expect_onlyItsOwnerClosed() throws Exception {
+        Handler failing = new Handler();
+        Handler other = new Handler();
+        CountDownLatch nextTaskRun = new CountDownLatch(1);
+
+        eventLoop.execute(failing, () -> {
+            throw new IllegalStateException("failed");
+        });
+        eventLoop.execute(other, nextTaskRun::countDown);
+
+        assertTrue(nextTaskRun.await(5, TimeUnit.SECONDS));
+        assertThat(failing.closed.getCount(), is(0L));
+        assertThat(other.closed.getCount(), is(1L));
+    }
+
+    @Test
+    public void when_scheduled_expect_runOnLoopAfterDelay() throws Exception {
+        CountDownLatch run = new CountDownLatch(1);
+        AtomicLong ranAfterNanos = new AtomicLong();
+        AtomicBoolean onLoop = new AtomicBoolean();
+
+        eventLoop.execute(() -> {
+            long scheduledAt = System.nanoTime();
+            eventLoop.schedule(50, TimeUnit.MILLISECONDS, () -> {
+                ranAfterNanos.set(System.nanoTime() - scheduledAt);
+                onLoop.set(eventLoop.inEventLoop());
+                run.countDown();
+            });
+        });
+
+        assertTrue(run.await(5, TimeUnit.SECONDS));
+        assertThat(onLoop.get(), is(true));
+        assertTrue(ranAfterNanos.get() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    private static final class Handler implements SelectionHandler {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void handle(SelectionKey key) {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.fibanez.java8.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class ArrayBackedListTest {
+
+    @Test
+    public void when_copyOf_expect_sameElementsInOrder() throws Exception {
+        List<String> list = ArrayBackedList.copyOf(Arrays.asList("a", "b", "c"));
+        assertThat(list, contains("a", "b", "c"));
+        assertThat(list, is(Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void when_sourceChanges_expect_copyUnchanged() throws Exception {
+        List<String> source = new ArrayList<>(Arrays.asList("a", "b"));
+        List<String> list = ArrayBackedList.copyOf(source);
+        source.add("c");
+        assertThat(list, hasSize(2));
+    }
+
+    @Test
+    public void when_null_expect_empty() throws Exception {
+        assertThat(ArrayBackedList.copyOf(null), hasSize(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void when_add_expect_unsupportedOperationException() throws Exception {
+        ArrayBackedList.copyOf(Arrays.asList("a")).add("b");
+    }
+}
@@ -5,15 +5,26 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * @author fibanez
@@ -47,4 +58,92 @@ public class FuturesTest {
         assertTrue(result.isCompletedExceptionally());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void when_completableFutureCancelled_expeted_futureCancelled() throws Exception {
+        Future future = mock(Future.class);
+        Executor executor = mock(Executor.class);
+
+        CompletableFuture completableFuture = Futures.toCompletableFuture(future, executor);
+        completableFuture.cancel(true);
+        verify(future).cancel(true);
+    }
+
+    @Test
+    public void when_completableFutureCancelled_expeted_blockedThreadReleased() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<String> neverCompleted = new CompletableFuture<>();
+        Future<String> future = mock(Future.class);
+        when(future.get()).thenAnswer(invocation -> neverCompleted.get());
+
+        CompletableFuture<String> completableFuture = Futures.toCompletableFuture(future, executor);
+        verify(future, timeout(1000)).get();
+        completableFuture.cancel(true);
+
+        CompletableFuture<String> next = CompletableFuture.supplyAsync(() -> "released", executor);
+        assertThat(next.get(1, TimeUnit.SECONDS), is("released"));
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void when_joinedFutureCancelled_expeted_allFuturesCancelled() throws Exception {
+        ArrayList<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>() {{
+            add(new CompletableFuture<>());
+            add(new CompletableFuture<>());
+        }};
+
+        CompletableFuture<List<String>> result = Futures.joinFutures(futures.stream());
+        result.cancel(true);
+        assertTrue(futures.stream().allMatch(CompletableFuture::isCancelled));
+    }
+
+    @Test
+    public void when_doneFuture_expeted_completedWithoutExecutor() throws Exception {
+        Future<String> future = mock(Future.class);
+        when(future.isDone()).thenReturn(true);
+        when(future.get()).thenReturn("value");
+        Executor executor = mock(Executor.class);
+
+        CompletableFuture<String> completableFuture = Futures.toCompletableFutureInline(future, executor);
+        assertThat(completableFuture.getNow(null), is("value"));
+        verify(executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void when_completionStage_expeted_completedInCompletingThread() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Executor executor = mock(Executor.class);
+
+        CompletableFuture<String> completableFuture = Futures.toCompletableFutureInline(future, executor);
+        future.complete("value");
+        assertThat(completableFuture.getNow(null), is("value"));
+        verify(executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void when_pendingFuture_expeted_waitedInExecutor() throws Exception {
+        Future<String> future = mock(Future.class);
+        Executor executor = mock(Executor.class);
+
+        Futures.toCompletableFutureInline(future, executor);
+        verify(executor).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void when_doneFuture_expeted_notCountedAsBlocked() throws Exception {
+        AtomicInteger blockedThreads = new AtomicInteger();
+        AtomicInteger blockedInGet = new AtomicInteger(-1);
+        FutureTask<String> future = new FutureTask<String>(() -> "value") {
+            @Override
+            public String get() throws InterruptedException, ExecutionException {
+                blockedInGet.set(blockedThreads.get());
+                return super.get();
+            }
+        };
+        future.run();
+
+        CompletableFuture<String> completableFuture = Futures.toCompletableFutureInline(future, Runnable::run, blockedThreads);
+        assertThat(completableFuture.getNow(null), is("value"));
+        assertThat(blockedInGet.get(), is(0));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.fibanez.java8.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author fibanez
+ */
+public class WeakInternerTest {
+
+    @Test
+    public void when_equalValues_expect_sameInstance() throws Exception {
+        WeakInterner<String> interner = new WeakInterner<>();
+        String first = interner.intern(new String("id"));
+        String second = interner.intern(new String("id"));
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    public void when_firstValue_expect_valueItself() throws Exception {
+        WeakInterner<String> interner = new WeakInterner<>();
+        String value = new String("id");
+        assertThat(interner.intern(value), is(sameInstance(value)));
+    }
+
+    @Test
+    public void when_null_expect_null() throws Exception {
+        WeakInterner<String> interner = new WeakInterner<>();
+        assertThat(interner.intern(null), is(nullValue()));
+    }
+
+    @Test
+    public void when_canonicalStrings_expect_sameInstance() throws Exception {
+        assertThat(StringUtils.canonical(new String("image.jpg")), is(sameInstance(StringUtils.canonical(new String("image.jpg")))));
+    }
+}